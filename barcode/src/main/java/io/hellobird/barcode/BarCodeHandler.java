@@ -1,26 +1,28 @@
 package io.hellobird.barcode;
 
 import android.content.Context;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Message;
+import android.os.SystemClock;
 import android.util.Log;
 
 import com.google.zxing.BarcodeFormat;
 import com.google.zxing.Result;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import io.hellobird.barcode.camera.CameraManager;
 import io.hellobird.barcode.decode.DecodeHandler;
 import io.hellobird.barcode.decode.DecodeThread;
+import io.hellobird.barcode.decode.DecodeThreadPool;
 
 /*******************************************************************
  * BarCodeHandler.java  2019-11-27
  * <P>
- * 用于连接 CameraManager 与 DecodeThread 类，<br/>
+ * 用于连接 CameraManager 与 DecodeThreadPool 类，<br/>
  * 使相机可以将图像帧传递给解析类解析，同时接收解析类的返回结果<br/>
  * <br/>
  * </p>
@@ -30,81 +32,198 @@ import io.hellobird.barcode.decode.DecodeThread;
  ******************************************************************/
 class BarCodeHandler extends Handler {
 
+    /**
+     * 连续扫描时合并回调结果
+     */
+    private static final int MSG_DELIVER_RESULTS = 100;
+
+    /**
+     * 连续扫描时合并回调的时间间隔，单位ms，间隔内识别到的结果在一次回调中返回
+     */
+    private static final long DELIVER_INTERVAL = 100L;
+
     /**
      * 相机管理类
      */
     private CameraManager mCameraManager;
     /**
-     * 解析线程
+     * 解析线程池
      */
-    private DecodeThread mDecodeThread;
+    private DecodeThreadPool mDecodeThreadPool;
 
     /**
      * 成功回调
      */
     private Callback mCallback;
 
+    /**
+     * 是否连续扫描
+     */
+    private boolean mBulkMode;
+
+    /**
+     * 是否解析每帧中的所有码
+     */
+    private boolean mMultiDecode;
+
+    /**
+     * 连续扫描与多码解析时的重复结果过滤
+     */
+    private final DuplicateFilter mDuplicateFilter = new DuplicateFilter(0);
+
+    /**
+     * 连续扫描时等待合并回调的结果
+     */
+    private final List<Result> mPendingResults = new ArrayList<>();
+
     /**
      * @param context       上下文
      * @param cameraManager 相机管理
      * @param decodeFormats 解析类型
      * @param callback      回调
+     * @param threadCount   解析线程数，小于等于0时使用默认值
      */
-    BarCodeHandler(Context context, CameraManager cameraManager, Collection<BarcodeFormat> decodeFormats, Callback callback, boolean callBackBitmap) {
+    BarCodeHandler(Context context, CameraManager cameraManager, Collection<BarcodeFormat> decodeFormats, Callback callback, boolean callBackBitmap, int threadCount) {
         mCameraManager = cameraManager;
         mCallback = callback;
-        mDecodeThread = new DecodeThread(context, cameraManager, this, decodeFormats, null, null, null, callBackBitmap);
-        mDecodeThread.start();
+        mDecodeThreadPool = new DecodeThreadPool(context, cameraManager, this, decodeFormats, null, null, null, callBackBitmap, threadCount);
+        mDecodeThreadPool.start();
+        // 每个解析线程最多持有一帧，再额外留出相机正在填充与等待分发的缓冲区
+        mCameraManager.setPreviewBufferCount(mDecodeThreadPool.getThreadCount() + 2);
+    }
+
+    /**
+     * 获取解析线程池，用于在开始解析前调整解析参数
+     *
+     * @return 解析线程池
+     */
+    DecodeThreadPool getDecodeThreadPool() {
+        return mDecodeThreadPool;
+    }
+
+    /**
+     * 设置连续扫描，开启后解析成功不再停止预览，结果经重复过滤后合并回调
+     *
+     * @param bulkMode        true 连续扫描
+     * @param duplicateWindow 重复结果的时间窗口，单位ms，小于0时不过滤，等于0时整次扫描内只回调一次
+     */
+    void setBulkMode(boolean bulkMode, long duplicateWindow) {
+        mBulkMode = bulkMode;
+        mDuplicateFilter.setWindow(duplicateWindow);
+        mDecodeThreadPool.setContinuous(mBulkMode || mMultiDecode);
+    }
+
+    /**
+     * 设置多码解析，开启后每帧解析出所有码，预览不再停止，
+     * 之前的帧中已回调过的结果经重复过滤后不再回调
+     *
+     * @param multiDecode true 解析每帧中的所有码
+     */
+    void setMultiDecode(boolean multiDecode) {
+        mMultiDecode = multiDecode;
+        mDecodeThreadPool.getOptions().setMultiDecodeEnabled(multiDecode);
+        mDecodeThreadPool.setContinuous(mBulkMode || mMultiDecode);
     }
 
     /**
      * 销毁
      */
     void destroy() {
-        if (mDecodeThread.isAlive()) {
-            Message quit = Message.obtain(mDecodeThread.getHandler(), DecodeHandler.Msg.quit);
-            quit.sendToTarget();
-        }
-        try {
-            // Wait at most half a second; should be enough time, and onPause() will timeout quickly
-            mDecodeThread.join(500L);
-        } catch (InterruptedException e) {
-            // continue
-        }
+        mDecodeThreadPool.quit();
         removeMessages(DecodeHandler.Msg.decode_succeeded);
-        removeMessages(DecodeHandler.Msg.decode_failed);
+        removeMessages(DecodeHandler.Msg.decode_succeeded_multiple);
+        removeMessages(MSG_DELIVER_RESULTS);
+        mPendingResults.clear();
     }
 
     @Override
     public void handleMessage(Message msg) {
         switch (msg.what) {
             case DecodeHandler.Msg.decode_succeeded: // 解析成功
-                mCameraManager.stopPreview();
-                Bundle bundle = msg.getData();
-                Bitmap barcode = null;
-                float scaleFactor = 1.0f;
-                if (bundle != null) {
-                    byte[] compressedBitmap = bundle.getByteArray(DecodeThread.BARCODE_BITMAP);
-                    if (compressedBitmap != null) {
-                        barcode = BitmapFactory.decodeByteArray(compressedBitmap, 0, compressedBitmap.length, null);
-                        // Mutable copy:
-                        barcode = barcode.copy(Bitmap.Config.ARGB_8888, true);
-                    }
-                    scaleFactor = bundle.getFloat(DecodeThread.BARCODE_SCALED_FACTOR);
+                if (mBulkMode) {
+                    onBulkResult((Result) msg.obj);
+                    break;
                 }
+                mCameraManager.stopPreview();
                 if (mCallback != null) {
-                    mCallback.onSuccess((Result) msg.obj, barcode, scaleFactor);
+                    mCallback.onSuccess((Result) msg.obj, buildThumbnail(msg.peekData()));
+                }
+                break;
+            case DecodeHandler.Msg.decode_succeeded_multiple: // 多码解析成功
+                Result[] results = filterDuplicates((Result[]) msg.obj);
+                if (results.length > 0 && mCallback != null) {
+                    mCallback.onMultiSuccess(results);
                 }
                 break;
-            case DecodeHandler.Msg.decode_failed: // 解析失败时，重新获取一帧
-                mCameraManager.requestPreviewFrame(mDecodeThread.getHandler(), DecodeHandler.Msg.decode);
+            case MSG_DELIVER_RESULTS: // 合并回调连续扫描的结果
+                if (!mPendingResults.isEmpty()) {
+                    List<Result> pending = new ArrayList<>(mPendingResults);
+                    mPendingResults.clear();
+                    if (mCallback != null) {
+                        mCallback.onBulkSuccess(pending);
+                    }
+                }
                 break;
         }
     }
 
+    /**
+     * 连续扫描时收到结果，过滤重复后等待合并回调
+     *
+     * @param result 结果
+     */
+    private void onBulkResult(Result result) {
+        if (mDuplicateFilter.isDuplicate(result, SystemClock.elapsedRealtime())) {
+            return;
+        }
+        mPendingResults.add(result);
+        if (!hasMessages(MSG_DELIVER_RESULTS)) {
+            sendEmptyMessageDelayed(MSG_DELIVER_RESULTS, DELIVER_INTERVAL);
+        }
+    }
+
+    /**
+     * 由解析线程回传的亮度数据创建缩略图，Bitmap在使用时才生成
+     *
+     * @param bundle 回传的数据
+     * @return 缩略图，未回传时为null
+     */
+    private static BarcodeThumbnail buildThumbnail(Bundle bundle) {
+        if (bundle == null) {
+            return null;
+        }
+        byte[] luminance = bundle.getByteArray(DecodeThread.BARCODE_BITMAP);
+        if (luminance == null) {
+            return null;
+        }
+        return new BarcodeThumbnail(luminance,
+                bundle.getInt(DecodeThread.BARCODE_THUMBNAIL_WIDTH),
+                bundle.getInt(DecodeThread.BARCODE_THUMBNAIL_HEIGHT),
+                bundle.getFloat(DecodeThread.BARCODE_SCALED_FACTOR));
+    }
+
+    /**
+     * 过滤之前的帧中已回调过的结果
+     *
+     * @param results 一帧中解析出的所有结果
+     * @return 新的结果
+     */
+    private Result[] filterDuplicates(Result[] results) {
+        long now = SystemClock.elapsedRealtime();
+        List<Result> fresh = new ArrayList<>(results.length);
+        for (Result result : results) {
+            if (!mDuplicateFilter.isDuplicate(result, now)) {
+                fresh.add(result);
+            }
+        }
+        return fresh.toArray(new Result[0]);
+    }
+
     public void restartPreviewAndDecode() {
+        mDuplicateFilter.clear();
         mCameraManager.startPreview();
-        mCameraManager.requestPreviewFrame(mDecodeThread.getHandler(), DecodeHandler.Msg.decode);
+        // 解析失败时由线程池自行获取下一帧
+        mDecodeThreadPool.restartDecode();
     }
 
     /**
@@ -114,10 +233,23 @@ class BarCodeHandler extends Handler {
         /**
          * 解析成功
          *
-         * @param result      结果
-         * @param barcode     二维码图片
-         * @param scaleFactor 缩放尺寸
+         * @param result    结果
+         * @param thumbnail 缩略图，未开启回传bitmap时为null
+         */
+        void onSuccess(Result result, BarcodeThumbnail thumbnail);
+
+        /**
+         * 连续扫描时识别到新的结果
+         *
+         * @param results 合并回调间隔内识别到的不重复结果，按识别顺序排列
+         */
+        void onBulkSuccess(List<Result> results);
+
+        /**
+         * 多码解析时一帧中识别到新的结果
+         *
+         * @param results 该帧中之前未回调过的结果
          */
-        void onSuccess(Result result, Bitmap barcode, float scaleFactor);
+        void onMultiSuccess(Result[] results);
     }
 }
@@ -1,8 +1,10 @@
 package io.hellobird.barcode;
 
 import android.content.Context;
+import android.content.SharedPreferences;
 import android.content.res.TypedArray;
 import android.graphics.Bitmap;
+import android.preference.PreferenceManager;
 import android.util.AttributeSet;
 import android.view.SurfaceHolder;
 import android.view.SurfaceView;
@@ -17,6 +19,11 @@ import java.util.ArrayList;
 import java.util.List;
 
 import io.hellobird.barcode.camera.CameraManager;
+import io.hellobird.barcode.decode.BinarizerMode;
+import io.hellobird.barcode.decode.DecodeMetrics;
+import io.hellobird.barcode.decode.DecodeOptions;
+import io.hellobird.barcode.decode.DecodeThreadPool;
+import io.hellobird.barcode.decode.InvertMode;
 
 /*******************************************************************
  * CaptureView.java  2019-11-27
@@ -35,6 +42,17 @@ public class BarCodeView extends SurfaceView implements BarCodeHandler.Callback
      */
     private static final float DEFAULT_RATIO = 0.8f;
 
+    /**
+     * 连续扫描时默认的重复结果时间窗口，单位ms
+     */
+    private static final int DEFAULT_DUPLICATE_WINDOW = 3000;
+
+    /**
+     * 记录重复结果时的时间窗口，单位ms<br/>
+     * 码一直停留在画面中时每次识别都会刷新时间，仍只回调一次；移出画面超过该时间后再次扫描才会再回调
+     */
+    private static final int MIN_DUPLICATE_WINDOW = 1000;
+
     /**
      * 相机管理类
      */
@@ -55,6 +73,26 @@ public class BarCodeView extends SurfaceView implements BarCodeHandler.Callback
      */
     private OnCaptureListener mOnCaptureListener;
 
+    /**
+     * 延迟生成缩略图的监听接口
+     */
+    private OnResultListener mOnResultListener;
+
+    /**
+     * 连续扫描的监听接口
+     */
+    private OnBulkCaptureListener mOnBulkCaptureListener;
+
+    /**
+     * 多码解析的监听接口
+     */
+    private OnMultiCaptureListener mOnMultiCaptureListener;
+
+    /**
+     * 每帧解析耗时的监听接口
+     */
+    private DecodeMetrics.Listener mMetricsListener;
+
     /**
      * 扫描框大小比例
      */
@@ -74,6 +112,70 @@ public class BarCodeView extends SurfaceView implements BarCodeHandler.Callback
      */
     private boolean mCallBackBitmap;
 
+    /**
+     * 解析线程数，小于等于0时根据CPU核心数决定
+     */
+    private int mDecodeThreadCount;
+
+    /**
+     * 最大帧龄，单位ms，等待解析超过该时间的帧会被丢弃，小于等于0时不限制
+     */
+    private int mMaxFrameAge;
+
+    /**
+     * 是否跳过模糊的帧
+     */
+    private boolean mSkipBlurryFrames;
+
+    /**
+     * 是否跳过与上一次解析失败时几乎相同的画面
+     */
+    private boolean mSkipSimilarFrames;
+
+    /**
+     * 是否跳过设备快速移动时的帧
+     */
+    private boolean mSkipMovingFrames;
+
+    /**
+     * 二值化策略
+     */
+    private BinarizerMode mBinarizerMode;
+
+    /**
+     * 反色码识别方式
+     */
+    private InvertMode mInvertMode;
+
+    /**
+     * 连续解析失败多少帧后提升解析档位
+     */
+    private int mEscalationThreshold;
+
+    /**
+     * 是否连续扫描，解析成功后不停止预览
+     */
+    private boolean mBulkMode;
+
+    /**
+     * 连续扫描时重复结果的时间窗口，单位ms
+     */
+    private int mDuplicateWindow;
+
+    /**
+     * 是否解析每帧中的所有码
+     */
+    private boolean mMultiDecode;
+
+    /**
+     * 是否跟踪码所在的区域
+     */
+    private boolean mTrackRoi;
+
+    /**
+     * 扫描框较大时是否先解析缩小后的图像
+     */
+    private boolean mPyramid;
 
     public BarCodeView(Context context) {
         this(context, null);
@@ -87,6 +189,20 @@ public class BarCodeView extends SurfaceView implements BarCodeHandler.Callback
         super(context, attrs, defStyleAttr);
         mScanFrameRatio = DEFAULT_RATIO;
         mSyncScanFrame = true;
+        mMaxFrameAge = (int) DecodeThreadPool.DEFAULT_MAX_FRAME_AGE;
+        mSkipBlurryFrames = true;
+        mSkipSimilarFrames = true;
+        mBinarizerMode = BinarizerMode.AUTO;
+        mEscalationThreshold = DecodeOptions.DEFAULT_ESCALATION_THRESHOLD;
+        mTrackRoi = true;
+        mPyramid = true;
+        // 未设置属性时沿用偏好设置，相机不支持反色特效时也能识别反色码
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        mInvertMode = prefs.getBoolean(Config.KEY_INVERT_SCAN, false) ? InvertMode.ALTERNATE : InvertMode.OFF;
+        mBulkMode = prefs.getBoolean(Config.KEY_BULK_MODE, false);
+        // 记录重复结果时缩短时间窗口，同一码重新扫描即可再次回调，但停留在画面中的码仍只回调一次
+        mDuplicateWindow = prefs.getBoolean(Config.KEY_REMEMBER_DUPLICATES, false)
+                ? MIN_DUPLICATE_WINDOW : DEFAULT_DUPLICATE_WINDOW;
         initAttrs(attrs);
         getHolder().addCallback(mCallBack);
     }
@@ -104,6 +220,19 @@ public class BarCodeView extends SurfaceView implements BarCodeHandler.Callback
         mScanFrameRatio = typedArray.getFloat(R.styleable.BarCodeView_scanFrameRatio, mScanFrameRatio);
         mSyncScanFrame = typedArray.getBoolean(R.styleable.BarCodeView_syncScanFrame, mSyncScanFrame);
         mCallBackBitmap = typedArray.getBoolean(R.styleable.BarCodeView_bitmap, mCallBackBitmap);
+        mDecodeThreadCount = typedArray.getInt(R.styleable.BarCodeView_decodeThreadCount, mDecodeThreadCount);
+        mMaxFrameAge = typedArray.getInt(R.styleable.BarCodeView_maxFrameAge, mMaxFrameAge);
+        mSkipBlurryFrames = typedArray.getBoolean(R.styleable.BarCodeView_skipBlurryFrames, mSkipBlurryFrames);
+        mSkipSimilarFrames = typedArray.getBoolean(R.styleable.BarCodeView_skipSimilarFrames, mSkipSimilarFrames);
+        mSkipMovingFrames = typedArray.getBoolean(R.styleable.BarCodeView_skipMovingFrames, mSkipMovingFrames);
+        mBinarizerMode = BinarizerMode.values()[typedArray.getInt(R.styleable.BarCodeView_binarizer, mBinarizerMode.ordinal())];
+        mEscalationThreshold = typedArray.getInt(R.styleable.BarCodeView_escalationThreshold, mEscalationThreshold);
+        mBulkMode = typedArray.getBoolean(R.styleable.BarCodeView_bulkMode, mBulkMode);
+        mDuplicateWindow = typedArray.getInt(R.styleable.BarCodeView_duplicateWindow, mDuplicateWindow);
+        mMultiDecode = typedArray.getBoolean(R.styleable.BarCodeView_multiDecode, mMultiDecode);
+        mTrackRoi = typedArray.getBoolean(R.styleable.BarCodeView_trackRoi, mTrackRoi);
+        mPyramid = typedArray.getBoolean(R.styleable.BarCodeView_pyramid, mPyramid);
+        mInvertMode = InvertMode.values()[typedArray.getInt(R.styleable.BarCodeView_invertScan, mInvertMode.ordinal())];
         int mode = typedArray.getInt(R.styleable.BarCodeView_mode, 0);
         // 解析模式
         mModeList = new ArrayList<>();
@@ -158,7 +287,22 @@ public class BarCodeView extends SurfaceView implements BarCodeHandler.Callback
         if (mSurfaceEnable) {
             try {
                 mCameraManager.openDriver(getHolder());
-                mHandler = new BarCodeHandler(getContext(), mCameraManager, mModeList, this, mCallBackBitmap);
+                // 连续扫描与多码解析时不回传bitmap，省去生成缩略图的开销
+                mHandler = new BarCodeHandler(getContext(), mCameraManager, mModeList, this,
+                        mCallBackBitmap && !mBulkMode && !mMultiDecode, mDecodeThreadCount);
+                mHandler.setBulkMode(mBulkMode, mDuplicateWindow);
+                mHandler.setMultiDecode(mMultiDecode);
+                mHandler.getDecodeThreadPool().setMetricsListener(mMetricsListener);
+                mHandler.getDecodeThreadPool().setMaxFrameAge(mMaxFrameAge);
+                DecodeOptions options = mHandler.getDecodeThreadPool().getOptions();
+                options.setSharpnessGateEnabled(mSkipBlurryFrames);
+                options.setSimilarityGateEnabled(mSkipSimilarFrames);
+                options.setMotionGateEnabled(mSkipMovingFrames);
+                options.setBinarizerMode(mBinarizerMode);
+                options.setInvertMode(mInvertMode);
+                options.setEscalationThreshold(mEscalationThreshold);
+                options.setRoiTrackingEnabled(mTrackRoi);
+                options.setPyramidEnabled(mPyramid);
                 // 开始预览与解析
                 mHandler.restartPreviewAndDecode();
             } catch (IOException e) {
@@ -179,6 +323,130 @@ public class BarCodeView extends SurfaceView implements BarCodeHandler.Callback
         if (mHandler != null) {
             mHandler.destroy();
         }
+        BarcodeThumbnail.clearPool();
+    }
+
+    /**
+     * 设置解析线程数，需在打开相机前设置
+     *
+     * @param threadCount 解析线程数，小于等于0时根据CPU核心数决定
+     */
+    public void setDecodeThreadCount(int threadCount) {
+        mDecodeThreadCount = threadCount;
+    }
+
+    /**
+     * 设置最大帧龄，需在打开相机前设置
+     *
+     * @param maxFrameAge 最大帧龄，单位ms，小于等于0时不限制
+     */
+    public void setMaxFrameAge(int maxFrameAge) {
+        mMaxFrameAge = maxFrameAge;
+    }
+
+    /**
+     * 设置是否跳过模糊的帧，需在打开相机前设置
+     *
+     * @param skipBlurryFrames true 对焦过程中的模糊帧不解析
+     */
+    public void setSkipBlurryFrames(boolean skipBlurryFrames) {
+        mSkipBlurryFrames = skipBlurryFrames;
+    }
+
+    /**
+     * 设置是否跳过与上一次解析失败时几乎相同的画面，需在打开相机前设置
+     *
+     * @param skipSimilarFrames true 设备静止时不重复解析同一画面
+     */
+    public void setSkipSimilarFrames(boolean skipSimilarFrames) {
+        mSkipSimilarFrames = skipSimilarFrames;
+    }
+
+    /**
+     * 设置是否跳过设备快速移动时的帧，需在打开相机前设置
+     *
+     * @param skipMovingFrames true 根据陀螺仪或加速度传感器跳过快速移动时的帧
+     */
+    public void setSkipMovingFrames(boolean skipMovingFrames) {
+        mSkipMovingFrames = skipMovingFrames;
+    }
+
+    /**
+     * 设置二值化策略，需在打开相机前设置
+     *
+     * @param binarizerMode 二值化策略，默认为 {@link BinarizerMode#AUTO}
+     */
+    public void setBinarizerMode(BinarizerMode binarizerMode) {
+        mBinarizerMode = binarizerMode;
+    }
+
+    /**
+     * 设置反色码（深色背景浅色码）识别方式，需在打开相机前设置
+     *
+     * @param invertMode 反色码识别方式，默认为 {@link InvertMode#OFF}，开启反色扫描偏好设置时为 {@link InvertMode#ALTERNATE}
+     */
+    public void setInvertMode(InvertMode invertMode) {
+        mInvertMode = invertMode;
+    }
+
+    /**
+     * 设置连续解析失败多少帧后提升解析档位（开启TRY_HARDER、扩大扫描框），需在打开相机前设置
+     *
+     * @param escalationThreshold 失败帧数，小于等于0时不提升
+     */
+    public void setEscalationThreshold(int escalationThreshold) {
+        mEscalationThreshold = escalationThreshold;
+    }
+
+    /**
+     * 设置是否连续扫描，需在打开相机前设置<br/>
+     * 开启后解析成功不再停止预览，结果经重复过滤后通过 {@link OnBulkCaptureListener} 回调
+     *
+     * @param bulkMode true 连续扫描，默认沿用偏好设置
+     */
+    public void setBulkMode(boolean bulkMode) {
+        mBulkMode = bulkMode;
+    }
+
+    /**
+     * 设置连续扫描时重复结果的时间窗口，需在打开相机前设置<br/>
+     * 格式与内容相同的结果在窗口内只回调一次，码一直停留在画面中时不会重复回调
+     *
+     * @param duplicateWindow 时间窗口，单位ms，小于0时不过滤，等于0时整次扫描内只回调一次
+     */
+    public void setDuplicateWindow(int duplicateWindow) {
+        mDuplicateWindow = duplicateWindow;
+    }
+
+    /**
+     * 设置是否解析每帧中的所有码，需在打开相机前设置<br/>
+     * 开启后预览不会因解析成功而停止，每帧中新识别到的码通过 {@link OnMultiCaptureListener} 回调，
+     * 已回调过的码按 {@link #setDuplicateWindow(int)} 过滤
+     *
+     * @param multiDecode true 解析所有码
+     */
+    public void setMultiDecode(boolean multiDecode) {
+        mMultiDecode = multiDecode;
+    }
+
+    /**
+     * 设置是否跟踪码所在的区域，需在打开相机前设置<br/>
+     * 开启后之后的帧只解析上一次找到码的区域附近，连续几帧未找到时回到完整的扫描框
+     *
+     * @param trackRoi true 跟踪，默认为true
+     */
+    public void setTrackRoi(boolean trackRoi) {
+        mTrackRoi = trackRoi;
+    }
+
+    /**
+     * 设置扫描框较大时是否先解析缩小后的图像，需在打开相机前设置<br/>
+     * 开启后高分辨率预览下先解析缩小2倍或4倍的图像，失败后再解析原分辨率图像
+     *
+     * @param pyramid true 先解析缩小后的图像，默认为true
+     */
+    public void setPyramid(boolean pyramid) {
+        mPyramid = pyramid;
     }
 
     /**
@@ -199,6 +467,54 @@ public class BarCodeView extends SurfaceView implements BarCodeHandler.Callback
         this.mOnCaptureListener = onCaptureListener;
     }
 
+    /**
+     * 设置捕获到结果的回调，缩略图在调用 {@link BarcodeThumbnail#getBitmap()} 时才生成
+     *
+     * @param onResultListener 回调接口
+     */
+    public void setOnResultListener(OnResultListener onResultListener) {
+        this.mOnResultListener = onResultListener;
+    }
+
+    /**
+     * 设置连续扫描时捕获到结果的回调
+     *
+     * @param onBulkCaptureListener 回调接口
+     */
+    public void setOnBulkCaptureListener(OnBulkCaptureListener onBulkCaptureListener) {
+        this.mOnBulkCaptureListener = onBulkCaptureListener;
+    }
+
+    /**
+     * 设置多码解析时捕获到结果的回调
+     *
+     * @param onMultiCaptureListener 回调接口
+     */
+    public void setOnMultiCaptureListener(OnMultiCaptureListener onMultiCaptureListener) {
+        this.mOnMultiCaptureListener = onMultiCaptureListener;
+    }
+
+    /**
+     * 设置每帧解析结束后的耗时回调，用于比较设备性能与发现性能退化
+     *
+     * @param listener 在主线程中回调，为null时取消
+     */
+    public void setOnMetricsListener(DecodeMetrics.Listener listener) {
+        mMetricsListener = listener;
+        if (mHandler != null) {
+            mHandler.getDecodeThreadPool().setMetricsListener(listener);
+        }
+    }
+
+    /**
+     * 获取最近一次打开相机以来的帧计数与各阶段耗时分位数
+     *
+     * @return 统计快照，尚未打开过相机时为null
+     */
+    public DecodeMetrics.MetricsSnapshot getMetricsSnapshot() {
+        return mHandler == null ? null : mHandler.getDecodeThreadPool().getMetricsSnapshot();
+    }
+
     SurfaceHolder.Callback mCallBack = new SurfaceHolder.Callback() {
         @Override
         public void surfaceCreated(SurfaceHolder holder) {
@@ -218,9 +534,27 @@ public class BarCodeView extends SurfaceView implements BarCodeHandler.Callback
     };
 
     @Override
-    public void onSuccess(Result result, Bitmap barcode, float scaleFactor) {
+    public void onSuccess(Result result, BarcodeThumbnail thumbnail) {
+        if (mOnResultListener != null) {
+            mOnResultListener.onResult(result, thumbnail);
+        }
         if (mOnCaptureListener != null) {
-            mOnCaptureListener.onCapture(result.getText(), barcode);
+            // 旧回调不会归还Bitmap，使用独立的Bitmap，不受OnResultListener调用release()的影响
+            mOnCaptureListener.onCapture(result.getText(), thumbnail == null ? null : thumbnail.createBitmap());
+        }
+    }
+
+    @Override
+    public void onBulkSuccess(List<Result> results) {
+        if (mOnBulkCaptureListener != null) {
+            mOnBulkCaptureListener.onBulkCapture(results);
+        }
+    }
+
+    @Override
+    public void onMultiSuccess(Result[] results) {
+        if (mOnMultiCaptureListener != null) {
+            mOnMultiCaptureListener.onMultiCapture(results);
         }
     }
 
@@ -234,6 +568,37 @@ public class BarCodeView extends SurfaceView implements BarCodeHandler.Callback
         void onCapture(String result, Bitmap barcode);
     }
 
+    /**
+     * 用于监听捕获到码的接口，缩略图按需生成
+     */
+    public interface OnResultListener {
+        /**
+         * @param result    返回结果
+         * @param thumbnail 缩略图，未开启回传bitmap时为null；用完后可调用 {@link BarcodeThumbnail#release()} 以便复用
+         */
+        void onResult(Result result, BarcodeThumbnail thumbnail);
+    }
+
+    /**
+     * 用于监听连续扫描结果的接口
+     */
+    public interface OnBulkCaptureListener {
+        /**
+         * @param results 新识别到的不重复结果，相近时间内的结果合并在一次回调中
+         */
+        void onBulkCapture(List<Result> results);
+    }
+
+    /**
+     * 用于监听多码解析结果的接口
+     */
+    public interface OnMultiCaptureListener {
+        /**
+         * @param results 一帧中新识别到的所有码
+         */
+        void onMultiCapture(Result[] results);
+    }
+
     public interface Mode {
         int AZTEC = 0x1;
         int CODABAR = 0x2;
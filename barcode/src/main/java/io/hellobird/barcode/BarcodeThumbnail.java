@@ -0,0 +1,141 @@
+package io.hellobird.barcode;
+
+import android.graphics.Bitmap;
+
+/*******************************************************************
+ * BarcodeThumbnail.java  2026-10-18
+ * <P>
+ * 识别成功时扫描框内图像的缩略图<br/>
+ * 解析线程只传递缩小后的亮度数据，首次调用 {@link #getBitmap()} 时才在调用线程中生成Bitmap；
+ * 不再使用时调用 {@link #release()} 将Bitmap归还，下次识别成功时复用，避免重复分配<br/>
+ * </p>
+ *
+ * @author:zhoupeng
+ *
+ ******************************************************************/
+public final class BarcodeThumbnail {
+
+    /**
+     * 可复用的Bitmap，只保留一个
+     */
+    private static Bitmap sSpareBitmap;
+
+    /**
+     * 缩略图亮度数据
+     */
+    private final byte[] mLuminance;
+
+    private final int mWidth;
+
+    private final int mHeight;
+
+    /**
+     * 缩略图与扫描框内图像的尺寸比例
+     */
+    private final float mScaleFactor;
+
+    /**
+     * 已生成的Bitmap
+     */
+    private Bitmap mBitmap;
+
+    BarcodeThumbnail(byte[] luminance, int width, int height, float scaleFactor) {
+        mLuminance = luminance;
+        mWidth = width;
+        mHeight = height;
+        mScaleFactor = scaleFactor;
+    }
+
+    /**
+     * @return 缩略图宽度
+     */
+    public int getWidth() {
+        return mWidth;
+    }
+
+    /**
+     * @return 缩略图高度
+     */
+    public int getHeight() {
+        return mHeight;
+    }
+
+    /**
+     * @return 缩略图与扫描框内图像的尺寸比例，结果中的特征点坐标乘以该值即为缩略图中的坐标
+     */
+    public float getScaleFactor() {
+        return mScaleFactor;
+    }
+
+    /**
+     * 获取灰度缩略图，首次调用时生成，调用 {@link #release()} 前多次调用返回同一个Bitmap
+     *
+     * @return 可修改的 ARGB_8888 Bitmap
+     */
+    public synchronized Bitmap getBitmap() {
+        if (mBitmap == null) {
+            mBitmap = render(obtainBitmap(mWidth, mHeight));
+        }
+        return mBitmap;
+    }
+
+    /**
+     * 生成一个独立的灰度缩略图，不参与复用，由调用方持有<br/>
+     * 用于不会调用 {@link #release()} 的回调，避免与 {@link #getBitmap()} 返回的Bitmap互相影响
+     *
+     * @return 可修改的 ARGB_8888 Bitmap
+     */
+    Bitmap createBitmap() {
+        return render(Bitmap.createBitmap(mWidth, mHeight, Bitmap.Config.ARGB_8888));
+    }
+
+    /**
+     * 将亮度数据绘制到Bitmap中
+     *
+     * @param bitmap 尺寸与缩略图一致的Bitmap
+     * @return 传入的Bitmap
+     */
+    private Bitmap render(Bitmap bitmap) {
+        int[] row = new int[mWidth];
+        for (int y = 0; y < mHeight; y++) {
+            int offset = y * mWidth;
+            for (int x = 0; x < mWidth; x++) {
+                int grey = mLuminance[offset + x] & 0xff;
+                row[x] = 0xFF000000 | (grey * 0x00010101);
+            }
+            bitmap.setPixels(row, 0, mWidth, 0, y, mWidth, 1);
+        }
+        return bitmap;
+    }
+
+    /**
+     * 归还Bitmap，调用后不能再使用之前通过 {@link #getBitmap()} 获取的Bitmap
+     */
+    public synchronized void release() {
+        if (mBitmap != null) {
+            recycleBitmap(mBitmap);
+            mBitmap = null;
+        }
+    }
+
+    private static synchronized Bitmap obtainBitmap(int width, int height) {
+        Bitmap bitmap = sSpareBitmap;
+        sSpareBitmap = null;
+        if (bitmap != null && !bitmap.isRecycled()
+                && bitmap.getWidth() == width && bitmap.getHeight() == height) {
+            return bitmap;
+        }
+        return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    }
+
+    private static synchronized void recycleBitmap(Bitmap bitmap) {
+        sSpareBitmap = bitmap;
+    }
+
+    /**
+     * 释放可复用的Bitmap，关闭相机后不再需要保留
+     */
+    static synchronized void clearPool() {
+        sSpareBitmap = null;
+    }
+}
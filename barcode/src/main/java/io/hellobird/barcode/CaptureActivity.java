@@ -1,6 +1,7 @@
 package io.hellobird.barcode;
 
 import android.Manifest;
+import android.content.ContentResolver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
@@ -29,7 +30,6 @@ import com.google.zxing.BarcodeFormat;
 import com.google.zxing.Result;
 
 import io.hellobird.barcode.decode.Decoder;
-import io.hellobird.barcode.decode.ImageResizer;
 
 /*******************************************************************
  * CaptureActivity.java  2019-11-26
@@ -216,29 +216,55 @@ public class CaptureActivity extends AppCompatActivity implements BarCodeView.On
             if (resultCode == RESULT_OK && data != null) {
                 Uri result = data.getData();
                 if (result != null) {
-                    String path = uri2filePath(result, this);
-                    Bitmap bitmap = ImageResizer.decodeSampledBitmapFromFile(path, 500, 500);
                     if (mQRDecoder == null) {
                         mQRDecoder = new Decoder(BarcodeFormat.QR_CODE);
                     }
-                    Result codeResult = mQRDecoder.decodeBitmap(bitmap);
-                    if (codeResult == null) {
-                        Toast.makeText(this, getString(R.string.parse_failed_from_photo), Toast.LENGTH_SHORT).show();
-                    } else {
-                        onCapture(codeResult.getText(), bitmap);
-                    }
+                    decodePhoto(result);
                 }
             }
         }
     }
 
+    /**
+     * 在后台线程中解析相册图片，读取云端图片可能较慢，不阻塞主线程；结果回到主线程处理
+     *
+     * @param uri 图片Uri
+     */
+    private void decodePhoto(final Uri uri) {
+        final Decoder decoder = mQRDecoder;
+        final ContentResolver resolver = getContentResolver();
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                // 直接通过ContentResolver读取，不再转换为文件路径
+                final Result codeResult = decoder.decodeUri(resolver, uri, 500, 500);
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (isFinishing()) {
+                            return;
+                        }
+                        if (codeResult == null) {
+                            Toast.makeText(CaptureActivity.this, getString(R.string.parse_failed_from_photo),
+                                    Toast.LENGTH_SHORT).show();
+                        } else {
+                            onCapture(codeResult.getText(), null);
+                        }
+                    }
+                });
+            }
+        }, TAG).start();
+    }
+
     /**
      * 将返回的uri转换为path
      *
      * @param uri     图片Uri
      * @param context 上下文，用于访问contentProvider
      * @return 图片文件地址
+     * @deprecated 云端与分区存储的Uri没有文件路径，使用 {@link Decoder#decodeUri} 直接解析Uri
      */
+    @Deprecated
     public static String uri2filePath(Uri uri, Context context) {
         String path = "";
         if (Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT
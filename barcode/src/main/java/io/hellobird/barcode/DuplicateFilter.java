@@ -0,0 +1,98 @@
+package io.hellobird.barcode;
+
+import com.google.zxing.Result;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*******************************************************************
+ * DuplicateFilter.java  2026-10-18
+ * <P>
+ * 连续扫描时的重复结果过滤<br/>
+ * 以格式与内容为键记录最近识别到的结果，时间窗口内再次识别到的视为重复；
+ * 码一直停留在画面中时每次识别都会刷新时间，不会在窗口过后重复回调<br/>
+ * 记录数有上限，超过时淘汰最久未识别到的结果<br/>
+ * 只在主线程中使用<br/>
+ * </p>
+ *
+ * @author:zhoupeng
+ *
+ ******************************************************************/
+final class DuplicateFilter {
+
+    /**
+     * 最多记录的结果数
+     */
+    private static final int MAX_ENTRIES = 512;
+
+    /**
+     * 结果最近一次被识别到的时间，按时间先后排列
+     */
+    private final LinkedHashMap<String, Long> mSeen = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    /**
+     * 时间窗口，单位ms
+     */
+    private long mWindow;
+
+    /**
+     * @param window 时间窗口，单位ms，小于0时不过滤，等于0时整次扫描内只保留第一次
+     */
+    DuplicateFilter(long window) {
+        mWindow = window;
+    }
+
+    /**
+     * 设置时间窗口，已有记录保留
+     *
+     * @param window 时间窗口，单位ms，小于0时不过滤，等于0时整次扫描内只保留第一次
+     */
+    void setWindow(long window) {
+        mWindow = window;
+    }
+
+    /**
+     * 判断结果是否重复，并记录本次识别时间
+     *
+     * @param result 识别结果
+     * @param now    当前时间，单位ms
+     * @return true 时间窗口内已识别过
+     */
+    boolean isDuplicate(Result result, long now) {
+        if (mWindow < 0) {
+            return false;
+        }
+        String key = result.getBarcodeFormat() + ":" + result.getText();
+        Long last = mSeen.put(key, now);
+        if (mWindow > 0) {
+            evictExpired(now);
+        }
+        return last != null && (mWindow == 0 || now - last < mWindow);
+    }
+
+    /**
+     * 清除所有记录
+     */
+    void clear() {
+        mSeen.clear();
+    }
+
+    /**
+     * 移除窗口外的记录，记录按识别时间排列，遇到窗口内的即可停止
+     */
+    private void evictExpired(long now) {
+        Iterator<Long> iterator = mSeen.values().iterator();
+        while (iterator.hasNext()) {
+            if (now - iterator.next() < mWindow) {
+                break;
+            }
+            iterator.remove();
+        }
+    }
+}
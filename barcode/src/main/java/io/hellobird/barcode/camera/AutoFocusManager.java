@@ -99,6 +99,16 @@ final class AutoFocusManager implements Camera.AutoFocusCallback {
     }
   }
 
+  /**
+   * Focus right away instead of waiting for the next scheduled cycle, e.g. when frames keep coming out blurry.
+   */
+  synchronized void focusNow() {
+    if (useAutoFocus && !stopped && !focusing) {
+      cancelOutstandingTask();
+      start();
+    }
+  }
+
   synchronized void stop() {
     stopped = true;
     if (useAutoFocus) {
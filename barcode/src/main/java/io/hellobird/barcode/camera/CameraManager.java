@@ -17,6 +17,7 @@
 package io.hellobird.barcode.camera;
 
 import android.content.Context;
+import android.graphics.ImageFormat;
 import android.graphics.Point;
 import android.graphics.Rect;
 import android.hardware.Camera;
@@ -27,6 +28,7 @@ import android.view.SurfaceHolder;
 import com.google.zxing.PlanarYUVLuminanceSource;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 import io.hellobird.barcode.camera.open.OpenCamera;
 import io.hellobird.barcode.camera.open.OpenCameraInterface;
@@ -70,6 +72,42 @@ public final class CameraManager {
      */
     private final PreviewCallback previewCallback;
 
+    /**
+     * 预览帧缓冲池，缓冲区数量大于0时使用 setPreviewCallbackWithBuffer 复用帧数据
+     */
+    private final PreviewBufferPool previewBufferPool;
+    private int previewBufferCount;
+
+    /**
+     * 相机方向与屏幕不一致时，各解析线程用于存放旋转后扫描框数据的缓冲区
+     */
+    private final ThreadLocal<byte[]> rotationBuffer = new ThreadLocal<>();
+
+    /**
+     * 各解析线程用于存放缩小后扫描框数据的缓冲区，与旋转缓冲区分开，使同一帧的两种分辨率可同时存在
+     */
+    private final ThreadLocal<byte[]> downsampleBuffer = new ThreadLocal<>();
+
+    /**
+     * 各解析线程缩小时用于累加亮度的缓冲区
+     */
+    private final ThreadLocal<int[]> downsampleSums = new ThreadLocal<>();
+
+    /**
+     * 连续多少帧模糊后立即对焦
+     */
+    private static final int BLURRY_FRAMES_BEFORE_FOCUS = 5;
+
+    /**
+     * 最近一帧的清晰度
+     */
+    private volatile float frameSharpness;
+
+    /**
+     * 连续模糊的帧数
+     */
+    private int blurryFrameCount;
+
     /**
      * 扫描框比率
      */
@@ -89,7 +127,8 @@ public final class CameraManager {
     public CameraManager(Context context, float ratio, boolean syncScanFrame) {
         this.context = context;
         this.configManager = new CameraConfigurationManager(context);
-        previewCallback = new PreviewCallback(configManager);
+        previewBufferPool = new PreviewBufferPool();
+        previewCallback = new PreviewCallback(configManager, previewBufferPool);
         mFrameRation = ratio;
         mSyncScanFrame = syncScanFrame;
     }
@@ -170,6 +209,9 @@ public final class CameraManager {
     public synchronized void startPreview() {
         OpenCamera theCamera = camera;
         if (theCamera != null && !previewing) {
+            if (previewBufferCount > 0) {
+                setupPreviewBuffers(theCamera.getCamera());
+            }
             theCamera.getCamera().startPreview();
             previewing = true;
             autoFocusManager = new AutoFocusManager(context, theCamera.getCamera());
@@ -185,12 +227,78 @@ public final class CameraManager {
             autoFocusManager = null;
         }
         if (camera != null && previewing) {
+            if (previewBufferCount > 0) {
+                camera.getCamera().setPreviewCallbackWithBuffer(null);
+            } else {
+                camera.getCamera().setPreviewCallback(null);
+            }
             camera.getCamera().stopPreview();
             previewCallback.setHandler(null, 0);
+            previewBufferPool.onPreviewStopped();
             previewing = false;
         }
     }
 
+    /**
+     * 设置预览帧缓冲区数量，需在开始预览前设置。
+     * 大于0时相机将帧数据写入预先分配好的缓冲区中，接收帧的一方用完后必须调用
+     * {@link #releasePreviewFrame(byte[])} 归还；为0时每帧由相机重新分配。
+     *
+     * @param count 缓冲区数量，应不少于同时持有帧数据的解析线程数加1
+     */
+    public synchronized void setPreviewBufferCount(int count) {
+        previewBufferCount = Math.max(0, count);
+    }
+
+    /**
+     * 归还 {@link #requestPreviewFrame} 返回的帧数据，使缓冲区可以被相机再次填充。
+     * 未使用缓冲池时调用无任何影响。
+     *
+     * @param data 帧数据
+     */
+    public synchronized void releasePreviewFrame(byte[] data) {
+        Camera theCamera = camera != null && previewing ? camera.getCamera() : null;
+        previewBufferPool.release(data, theCamera);
+    }
+
+    private void setupPreviewBuffers(Camera theCamera) {
+        Point cameraResolution = configManager.getCameraResolution();
+        int bitsPerPixel = ImageFormat.getBitsPerPixel(theCamera.getParameters().getPreviewFormat());
+        int bufferSize = cameraResolution.x * cameraResolution.y * bitsPerPixel / 8;
+        previewBufferPool.prepare(previewBufferCount, bufferSize);
+        theCamera.setPreviewCallbackWithBuffer(previewCallback);
+        previewBufferPool.queueFreeBuffers(theCamera);
+    }
+
+    /**
+     * 解析线程上报当前帧的清晰度，连续多帧模糊时不再等待对焦周期，立即重新对焦
+     *
+     * @param sharpness 清晰度，相邻像素亮度差的平方均值
+     * @param sharp     是否足够清晰
+     */
+    public synchronized void reportFrameSharpness(float sharpness, boolean sharp) {
+        frameSharpness = sharpness;
+        if (sharp) {
+            blurryFrameCount = 0;
+            return;
+        }
+        if (++blurryFrameCount >= BLURRY_FRAMES_BEFORE_FOCUS) {
+            blurryFrameCount = 0;
+            if (autoFocusManager != null) {
+                autoFocusManager.focusNow();
+            }
+        }
+    }
+
+    /**
+     * 获取最近一帧的清晰度
+     *
+     * @return 相邻像素亮度差的平方均值，未开启清晰度过滤时为0
+     */
+    public float getFrameSharpness() {
+        return frameSharpness;
+    }
+
     /**
      * 设置是否打开闪光灯
      *
@@ -228,7 +336,8 @@ public final class CameraManager {
     /**
      * A single preview frame will be returned to the handler supplied. The data will arrive as byte[]
      * in the message.obj field, with width and height encoded as message.arg1 and message.arg2,
-     * respectively.
+     * respectively. When preview buffers are enabled the receiver owns the byte[] until it calls
+     * {@link #releasePreviewFrame(byte[])}.
      *
      * @param handler The handler to send the message to.
      * @param message The what field of the message to be sent.
@@ -237,7 +346,29 @@ public final class CameraManager {
         OpenCamera theCamera = camera;
         if (theCamera != null && previewing) {
             previewCallback.setHandler(handler, message);
-            theCamera.getCamera().setOneShotPreviewCallback(previewCallback);
+            if (previewBufferCount == 0) {
+                // 使用缓冲池时回调已在开始预览时注册，此处只需要指定接收帧的handler
+                theCamera.getCamera().setOneShotPreviewCallback(previewCallback);
+            }
+        }
+    }
+
+    /**
+     * Like {@link #requestPreviewFrame} but every following preview frame is delivered to the handler
+     * until the preview stops, so the receiver always sees the newest frame instead of asking for one
+     * after each decode. The receiver owns each byte[] until it calls {@link #releasePreviewFrame(byte[])}.
+     * Without preview buffers the camera allocates a new byte[] for every frame.
+     *
+     * @param handler The handler to send the messages to.
+     * @param message The what field of the messages to be sent.
+     */
+    public synchronized void setPreviewFrameHandler(Handler handler, int message) {
+        OpenCamera theCamera = camera;
+        if (theCamera != null && previewing) {
+            previewCallback.setHandler(handler, message, true);
+            if (previewBufferCount == 0) {
+                theCamera.getCamera().setPreviewCallback(previewCallback);
+            }
         }
     }
 
@@ -382,23 +513,158 @@ public final class CameraManager {
         if (rect == null) {
             return null;
         }
+        return buildLuminanceSource(data, width, height, rect);
+    }
+
+    /**
+     * 以扫描框中心为基准放大扫描框后构建图像源，用于识别未完全对准扫描框的码
+     *
+     * @param data   A preview frame.
+     * @param width  The width of the image.
+     * @param height The height of the image.
+     * @param scale  扫描框的放大倍数，放大后不超出预览帧
+     * @return A PlanarYUVLuminanceSource instance.
+     */
+    public PlanarYUVLuminanceSource buildLuminanceSource(byte[] data, int width, int height, float scale) {
+        Rect rect = getFramingRectInPreview();
+        if (rect == null) {
+            return null;
+        }
+        // 扫描框坐标以屏幕方向为准，方向不一致时预览帧宽高需交换
+        boolean sameDirection = isSameDirection();
+        int maxWidth = sameDirection ? width : height;
+        int maxHeight = sameDirection ? height : width;
+        int scaledWidth = Math.min(maxWidth, Math.round(rect.width() * scale));
+        int scaledHeight = Math.min(maxHeight, Math.round(rect.height() * scale));
+        int left = Math.max(0, Math.min(maxWidth - scaledWidth, rect.centerX() - scaledWidth / 2));
+        int top = Math.max(0, Math.min(maxHeight - scaledHeight, rect.centerY() - scaledHeight / 2));
+        return buildLuminanceSource(data, width, height,
+                new Rect(left, top, left + scaledWidth, top + scaledHeight));
+    }
 
+    /**
+     * 以指定区域构建图像源，用于只解析码所在的区域
+     *
+     * @param data   A preview frame.
+     * @param width  The width of the image.
+     * @param height The height of the image.
+     * @param rect   区域，坐标与 {@link #getFramingRectInPreview()} 一致，不能超出预览帧
+     * @return A PlanarYUVLuminanceSource instance.
+     */
+    public PlanarYUVLuminanceSource buildLuminanceSource(byte[] data, int width, int height, Rect rect) {
         if (isSameDirection()) {
             // Go ahead and assume it's YUV rather than die.
             return new PlanarYUVLuminanceSource(data, width, height, rect.left, rect.top,
                     rect.width(), rect.height(), false);
         } else {
-            // 当相机方向与屏幕不一致，旋转图片90度
-            byte[] rotatedData = new byte[data.length];
-            int newWidth = height;
-            int newHeight = width;
-            for (int y = 0; y < height; y++) {
-                for (int x = 0; x < width; x++)
-                    rotatedData[x * newWidth + newWidth - 1 - y] = data[x + y * width];
+            // 当相机方向与屏幕不一致时，只将扫描框内的亮度数据旋转90度，
+            // 写入当前解析线程复用的缓冲区，色度数据与扫描框外的像素不参与旋转
+            int cropWidth = rect.width();
+            int cropHeight = rect.height();
+            byte[] rotatedData = obtainRotationBuffer(cropWidth * cropHeight);
+            // 旋转后的坐标(x, y)对应原图中的(y, height - 1 - x)，
+            // 按原图行顺序读取，每一行原图数据对应旋转后的一列
+            for (int x = 0; x < cropWidth; x++) {
+                int srcOffset = (height - 1 - rect.left - x) * width + rect.top;
+                int dstOffset = x;
+                for (int y = 0; y < cropHeight; y++) {
+                    rotatedData[dstOffset] = data[srcOffset + y];
+                    dstOffset += cropWidth;
+                }
+            }
+            // 数据已裁剪，getMatrix()可直接返回缓冲区而无需再次复制
+            return new PlanarYUVLuminanceSource(rotatedData, cropWidth, cropHeight,
+                    0, 0, cropWidth, cropHeight, false);
+        }
+    }
+
+    /**
+     * 以指定区域构建缩小后的图像源，每 factor x factor 个像素取亮度平均值，
+     * 裁剪、旋转与缩小在一次遍历中完成，不生成原分辨率的中间数据<br/>
+     * 用于高分辨率预览下近距离的大码，解析的像素数只有原来的 1/(factor*factor)
+     *
+     * @param data   A preview frame.
+     * @param width  The width of the image.
+     * @param height The height of the image.
+     * @param rect   区域，坐标与 {@link #getFramingRectInPreview()} 一致，不能超出预览帧
+     * @param factor 缩小倍数，需为2的幂，为1时与 {@link #buildLuminanceSource(byte[], int, int, Rect)} 相同
+     * @return A PlanarYUVLuminanceSource instance，坐标为缩小后的坐标.
+     */
+    public PlanarYUVLuminanceSource buildLuminanceSource(byte[] data, int width, int height, Rect rect, int factor) {
+        if (factor <= 1) {
+            return buildLuminanceSource(data, width, height, rect);
+        }
+        int outWidth = rect.width() / factor;
+        int outHeight = rect.height() / factor;
+        if (outWidth == 0 || outHeight == 0) {
+            return buildLuminanceSource(data, width, height, rect);
+        }
+        // factor为2的幂，除法均可用移位代替
+        int log = Integer.numberOfTrailingZeros(factor);
+        int shift = log * 2;
+        byte[] out = obtainBuffer(downsampleBuffer, outWidth * outHeight);
+        int[] sums = obtainSums(Math.max(outWidth, outHeight));
+        if (isSameDirection()) {
+            // 逐行累加，每 factor 行输出一行
+            for (int y = 0; y < outHeight; y++) {
+                Arrays.fill(sums, 0, outWidth, 0);
+                for (int j = 0; j < factor; j++) {
+                    int srcOffset = (rect.top + y * factor + j) * width + rect.left;
+                    for (int x = 0; x < outWidth * factor; x++) {
+                        sums[x >> log] += data[srcOffset + x] & 0xff;
+                    }
+                }
+                int dstOffset = y * outWidth;
+                for (int x = 0; x < outWidth; x++) {
+                    out[dstOffset + x] = (byte) (sums[x] >> shift);
+                }
+            }
+        } else {
+            // 旋转后的坐标(x, y)对应原图中的(y, height - 1 - x)，原图每 factor 行输出旋转后的一列
+            for (int x = 0; x < outWidth; x++) {
+                Arrays.fill(sums, 0, outHeight, 0);
+                for (int i = 0; i < factor; i++) {
+                    int srcOffset = (height - 1 - rect.left - x * factor - i) * width + rect.top;
+                    for (int y = 0; y < outHeight * factor; y++) {
+                        sums[y >> log] += data[srcOffset + y] & 0xff;
+                    }
+                }
+                int dstOffset = x;
+                for (int y = 0; y < outHeight; y++) {
+                    out[dstOffset] = (byte) (sums[y] >> shift);
+                    dstOffset += outWidth;
+                }
             }
-            return new PlanarYUVLuminanceSource(rotatedData, newWidth, newHeight,
-                    rect.left, rect.top, rect.width(), rect.height(), false);
         }
+        return new PlanarYUVLuminanceSource(out, outWidth, outHeight, 0, 0, outWidth, outHeight, false);
+    }
+
+    /**
+     * 获取当前线程的旋转缓冲区，多个解析线程可同时构建图像源，因此每个线程各自持有一份
+     *
+     * @param size 所需大小
+     * @return 不小于所需大小的缓冲区
+     */
+    private byte[] obtainRotationBuffer(int size) {
+        return obtainBuffer(rotationBuffer, size);
+    }
+
+    private static byte[] obtainBuffer(ThreadLocal<byte[]> local, int size) {
+        byte[] buffer = local.get();
+        if (buffer == null || buffer.length < size) {
+            buffer = new byte[size];
+            local.set(buffer);
+        }
+        return buffer;
+    }
+
+    private int[] obtainSums(int size) {
+        int[] sums = downsampleSums.get();
+        if (sums == null || sums.length < size) {
+            sums = new int[size];
+            downsampleSums.set(sums);
+        }
+        return sums;
     }
 
     /**
@@ -0,0 +1,122 @@
+package io.hellobird.barcode.camera;
+
+import android.hardware.Camera;
+
+/*******************************************************************
+ * PreviewBufferPool.java  2026-10-18
+ * <P>
+ * 预览帧缓冲池，配合 {@link Camera#setPreviewCallbackWithBuffer} 使用<br/>
+ * 每个缓冲区处于以下三种状态之一：<br/>
+ * FREE：由缓冲池持有，预览开始时交给相机<br/>
+ * QUEUED：已通过 {@link Camera#addCallbackBuffer} 交给相机等待填充<br/>
+ * IN_USE：相机已填充并交给解析方，解析方用完后必须通过
+ * {@link CameraManager#releasePreviewFrame(byte[])} 归还<br/>
+ * 稳定运行时不会再分配新的帧数据<br/>
+ * </p>
+ *
+ * @author:zhoupeng
+ *
+ ******************************************************************/
+@SuppressWarnings("deprecation") // camera APIs
+final class PreviewBufferPool {
+
+    private static final int FREE = 0;
+    private static final int QUEUED = 1;
+    private static final int IN_USE = 2;
+
+    /**
+     * 缓冲区
+     */
+    private byte[][] mBuffers = new byte[0][];
+
+    /**
+     * 各缓冲区状态
+     */
+    private int[] mStates = new int[0];
+
+    /**
+     * 准备缓冲区，数量与大小不变时复用已有的缓冲区
+     *
+     * @param count      缓冲区数量
+     * @param bufferSize 单个缓冲区大小
+     */
+    synchronized void prepare(int count, int bufferSize) {
+        if (mBuffers.length == count && count > 0 && mBuffers[0].length == bufferSize) {
+            return;
+        }
+        // 尺寸变化时重新分配，仍被解析方持有的旧缓冲区归还时会被丢弃
+        mBuffers = new byte[count][];
+        mStates = new int[count];
+        for (int i = 0; i < count; i++) {
+            mBuffers[i] = new byte[bufferSize];
+        }
+    }
+
+    /**
+     * 预览开始时，将所有空闲的缓冲区交给相机
+     *
+     * @param camera 相机
+     */
+    synchronized void queueFreeBuffers(Camera camera) {
+        for (int i = 0; i < mBuffers.length; i++) {
+            if (mStates[i] == FREE) {
+                mStates[i] = QUEUED;
+                camera.addCallbackBuffer(mBuffers[i]);
+            }
+        }
+    }
+
+    /**
+     * 预览停止后相机不再持有缓冲区，交给相机的缓冲区回到空闲状态
+     */
+    synchronized void onPreviewStopped() {
+        for (int i = 0; i < mStates.length; i++) {
+            if (mStates[i] == QUEUED) {
+                mStates[i] = FREE;
+            }
+        }
+    }
+
+    /**
+     * 相机填充完成，缓冲区交给解析方
+     *
+     * @param data 缓冲区
+     */
+    synchronized void acquire(byte[] data) {
+        int index = indexOf(data);
+        if (index >= 0) {
+            mStates[index] = IN_USE;
+        }
+    }
+
+    /**
+     * 归还缓冲区，预览中时直接交还相机
+     *
+     * @param data   缓冲区
+     * @param camera 正在预览的相机，未预览时为null
+     * @return 是否为缓冲池中的缓冲区
+     */
+    synchronized boolean release(byte[] data, Camera camera) {
+        int index = indexOf(data);
+        if (index < 0) {
+            // 非缓冲池中的数据，如单次回调产生的帧或尺寸变化前的旧缓冲区
+            return false;
+        }
+        if (camera != null) {
+            mStates[index] = QUEUED;
+            camera.addCallbackBuffer(data);
+        } else {
+            mStates[index] = FREE;
+        }
+        return true;
+    }
+
+    private int indexOf(byte[] data) {
+        for (int i = 0; i < mBuffers.length; i++) {
+            if (mBuffers[i] == data) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -28,16 +28,28 @@ final class PreviewCallback implements Camera.PreviewCallback {
   private static final String TAG = PreviewCallback.class.getSimpleName();
 
   private final CameraConfigurationManager configManager;
+  private final PreviewBufferPool bufferPool;
   private Handler previewHandler;
   private int previewMessage;
+  private boolean continuous;
 
-  PreviewCallback(CameraConfigurationManager configManager) {
+  PreviewCallback(CameraConfigurationManager configManager, PreviewBufferPool bufferPool) {
     this.configManager = configManager;
+    this.bufferPool = bufferPool;
   }
 
   void setHandler(Handler previewHandler, int previewMessage) {
+    setHandler(previewHandler, previewMessage, false);
+  }
+
+  /**
+   * @param continuous if {@code true} every frame is sent to the handler until it is cleared,
+   *                   otherwise only the next one
+   */
+  void setHandler(Handler previewHandler, int previewMessage, boolean continuous) {
     this.previewHandler = previewHandler;
     this.previewMessage = previewMessage;
+    this.continuous = continuous;
   }
 
   @Override
@@ -45,11 +57,16 @@ final class PreviewCallback implements Camera.PreviewCallback {
     Point cameraResolution = configManager.getCameraResolution();
     Handler thePreviewHandler = previewHandler;
     if (cameraResolution != null && thePreviewHandler != null) {
+      // The receiver now owns the buffer and must hand it back via CameraManager.releasePreviewFrame()
+      bufferPool.acquire(data);
       Message message = thePreviewHandler.obtainMessage(previewMessage, cameraResolution.x,
           cameraResolution.y, data);
       message.sendToTarget();
-      previewHandler = null;
-    } else {
+      if (!continuous) {
+        previewHandler = null;
+      }
+    } else if (!bufferPool.release(data, camera)) {
+      // Pooled buffers nobody asked for go straight back to the camera; only one-shot frames are worth a log
       Log.d(TAG, "Got preview callback, but no handler or resolution available");
     }
   }
@@ -0,0 +1,335 @@
+package io.hellobird.barcode.decode;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Result;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*******************************************************************
+ * BatchDecoder.java  2026-10-18
+ * <P>
+ * 批量解析图片<br/>
+ * 在固定数量的后台线程中并行解析，各线程共享 {@link Decoder#getShared(Collection, String)} 返回的解析器，
+ * 每张图片解析完成后立即回调，可随时取消，并可限制每张图片的解析时间<br/>
+ * 同一批次中各线程按顺序领取下一张图片，不会一次性为所有图片创建任务<br/>
+ * </p>
+ *
+ * @author:zhoupeng
+ *
+ ******************************************************************/
+public final class BatchDecoder {
+
+    private static final String TAG = BatchDecoder.class.getSimpleName();
+
+    /**
+     * 空闲线程的存活时间，单位s
+     */
+    private static final int KEEP_ALIVE_SECONDS = 30;
+
+    /**
+     * 默认的最大读取尺寸
+     */
+    private static final int DEFAULT_MAX_SIZE = 1600;
+
+    /**
+     * 解析线程池
+     */
+    private final ThreadPoolExecutor mExecutor;
+
+    /**
+     * 并行解析的线程数
+     */
+    private final int mThreadCount;
+
+    /**
+     * 共享的解析器，各解析线程在其中持有各自的解析器
+     */
+    private final Decoder mDecoder;
+
+    /**
+     * 读取图片的最大宽度
+     */
+    private volatile int mMaxWidth = DEFAULT_MAX_SIZE;
+
+    /**
+     * 读取图片的最大高度
+     */
+    private volatile int mMaxHeight = DEFAULT_MAX_SIZE;
+
+    /**
+     * @param formats     解析格式
+     * @param charset     字符集，可为null
+     * @param threadCount 并行解析的线程数，小于1时按cpu核数
+     */
+    public BatchDecoder(Collection<BarcodeFormat> formats, String charset, int threadCount) {
+        mDecoder = Decoder.getShared(formats, charset);
+        mThreadCount = threadCount < 1 ? Runtime.getRuntime().availableProcessors() : threadCount;
+        mExecutor = new ThreadPoolExecutor(mThreadCount, mThreadCount,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    private final AtomicInteger mCount = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, TAG + "-" + mCount.incrementAndGet());
+                        thread.setPriority(Thread.NORM_PRIORITY - 1);
+                        return thread;
+                    }
+                });
+        mExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 设置读取图片的最大尺寸，超过时采样读取，防止oom
+     *
+     * @param maxWidth  最大宽度
+     * @param maxHeight 最大高度
+     */
+    public void setMaxSize(int maxWidth, int maxHeight) {
+        mMaxWidth = maxWidth;
+        mMaxHeight = maxHeight;
+    }
+
+    /**
+     * 批量解析图片，立即返回
+     *
+     * @param sources  图片来源
+     * @param timeout  每张图片的解析时间上限，单位ms，小于等于0时不限制；
+     *                 解析过程不可中断，只在读取与每次尝试之前检查是否超时
+     * @param callback 结果回调，在解析线程中调用，需自行保证线程安全
+     * @return 批次，用于取消或等待结束；已调用 {@link #shutdown()} 时批次立即以取消结束
+     */
+    public Batch decode(List<ImageSource> sources, long timeout, Callback callback) {
+        Batch batch = new Batch(new ArrayList<>(sources), timeout, callback);
+        int workers = Math.min(mThreadCount, batch.mSources.size());
+        if (workers == 0) {
+            batch.finish();
+            return batch;
+        }
+        batch.mRunningWorkers.set(workers);
+        for (int i = 0; i < workers; i++) {
+            try {
+                mExecutor.execute(batch);
+            } catch (RejectedExecutionException e) {
+                // 已调用shutdown，未能启动的解析线程不再计数；一个都未启动时批次视为取消
+                Log.w(TAG, "解析线程未能启动", e);
+                if (i == 0) {
+                    batch.mCancelled = true;
+                }
+                if (batch.mRunningWorkers.addAndGet(i - workers) == 0) {
+                    batch.finish();
+                }
+                break;
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * 不再接受新的批次，已提交的批次继续解析
+     */
+    public void shutdown() {
+        mExecutor.shutdown();
+    }
+
+    /**
+     * 解析一张图片
+     *
+     * @param source   图片来源
+     * @param deadline 截止时间，{@link System#nanoTime()}，为0时不限制
+     * @return 解析结果，未找到时为null
+     */
+    private Result decode(ImageSource source, long deadline) throws Exception {
+        // 读取前后都检查是否超时，已超时的图片不再读取
+        Decoder.checkDeadline(deadline);
+        BitmapPool pool = mDecoder.getBitmapPool();
+        Bitmap bitmap = source.load(mMaxWidth, mMaxHeight, pool, mDecoder.getBitmapConfig());
+        if (bitmap == null) {
+            throw new IllegalArgumentException("无法读取图片 " + source);
+        }
+        try {
+            Decoder.checkDeadline(deadline);
+            return mDecoder.decode(mDecoder.buildSourceFromBitmap(bitmap, source.getOrientation()), deadline);
+        } finally {
+            Decoder.recycleBitmap(bitmap, pool);
+        }
+    }
+
+    /**
+     * 一批待解析的图片，同时作为各解析线程执行的任务
+     */
+    public final class Batch implements Runnable {
+
+        private final List<ImageSource> mSources;
+
+        private final long mTimeoutNanos;
+
+        private final Callback mCallback;
+
+        /**
+         * 下一张待领取的图片下标
+         */
+        private final AtomicInteger mNextIndex = new AtomicInteger();
+
+        /**
+         * 已解析完成的图片数
+         */
+        private final AtomicInteger mCompleted = new AtomicInteger();
+
+        /**
+         * 尚未退出的解析线程数
+         */
+        private final AtomicInteger mRunningWorkers = new AtomicInteger();
+
+        private final CountDownLatch mFinished = new CountDownLatch(1);
+
+        private volatile boolean mCancelled;
+
+        private Batch(List<ImageSource> sources, long timeout, Callback callback) {
+            mSources = sources;
+            mTimeoutNanos = timeout > 0 ? TimeUnit.MILLISECONDS.toNanos(timeout) : 0;
+            mCallback = callback;
+        }
+
+        @Override
+        public void run() {
+            try {
+                int index;
+                while (!mCancelled && (index = mNextIndex.getAndIncrement()) < mSources.size()) {
+                    decodeItem(index);
+                }
+            } finally {
+                if (mRunningWorkers.decrementAndGet() == 0) {
+                    finish();
+                }
+            }
+        }
+
+        private void decodeItem(int index) {
+            ImageSource source = mSources.get(index);
+            long deadline = 0;
+            if (mTimeoutNanos > 0) {
+                // 避免恰好为0时被当作不限制
+                deadline = (System.nanoTime() + mTimeoutNanos) | 1;
+            }
+            Result result;
+            try {
+                result = BatchDecoder.this.decode(source, deadline);
+            } catch (Exception e) {
+                mCompleted.incrementAndGet();
+                if (!mCancelled && mCallback != null) {
+                    mCallback.onFailed(index, source, e);
+                }
+                return;
+            } catch (OutOfMemoryError e) {
+                Log.w(TAG, "图片过大，解析失败 " + source, e);
+                mCompleted.incrementAndGet();
+                if (!mCancelled && mCallback != null) {
+                    mCallback.onFailed(index, source, new IllegalStateException(e));
+                }
+                return;
+            }
+            mCompleted.incrementAndGet();
+            if (!mCancelled && mCallback != null) {
+                mCallback.onDecoded(index, source, result);
+            }
+        }
+
+        private void finish() {
+            if (mCallback != null) {
+                mCallback.onFinished(mCancelled);
+            }
+            mFinished.countDown();
+        }
+
+        /**
+         * 取消批次，正在解析的图片完成后不再回调，也不再领取新的图片
+         */
+        public void cancel() {
+            mCancelled = true;
+        }
+
+        /**
+         * @return 是否已取消
+         */
+        public boolean isCancelled() {
+            return mCancelled;
+        }
+
+        /**
+         * @return 是否所有解析线程都已结束
+         */
+        public boolean isFinished() {
+            return mFinished.getCount() == 0;
+        }
+
+        /**
+         * @return 已解析完成的图片数，包括失败与超时的图片
+         */
+        public int getCompletedCount() {
+            return mCompleted.get();
+        }
+
+        /**
+         * @return 图片总数
+         */
+        public int getCount() {
+            return mSources.size();
+        }
+
+        /**
+         * 等待批次结束
+         *
+         * @param timeout 等待时间
+         * @param unit    时间单位
+         * @return 是否已结束
+         * @throws InterruptedException 等待时被中断
+         */
+        public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+            return mFinished.await(timeout, unit);
+        }
+    }
+
+    /**
+     * 批量解析的回调，在解析线程中调用，不同图片的回调可能并发
+     */
+    public interface Callback {
+        /**
+         * 一张图片解析完成
+         *
+         * @param index  图片在批次中的下标
+         * @param source 图片来源
+         * @param result 解析结果，未找到码时为null
+         */
+        void onDecoded(int index, ImageSource source, Result result);
+
+        /**
+         * 一张图片读取失败或超时
+         *
+         * @param index  图片在批次中的下标
+         * @param source 图片来源
+         * @param error  失败原因，超时为 {@link TimeoutException}
+         */
+        void onFailed(int index, ImageSource source, Exception error);
+
+        /**
+         * 批次结束，只回调一次
+         *
+         * @param cancelled 是否已取消
+         */
+        void onFinished(boolean cancelled);
+    }
+}
@@ -0,0 +1,32 @@
+package io.hellobird.barcode.decode;
+
+/*******************************************************************
+ * BinarizerMode.java  2026-10-18
+ * <P>
+ * 二值化策略<br/>
+ * GlobalHistogramBinarizer 速度快但对光照不均的图像效果差，
+ * HybridBinarizer 效果好但耗时明显更多<br/>
+ * </p>
+ *
+ * @author:zhoupeng
+ *
+ ******************************************************************/
+public enum BinarizerMode {
+
+    /**
+     * 只使用 HybridBinarizer
+     */
+    HYBRID,
+    /**
+     * 先使用 GlobalHistogramBinarizer，失败后再使用 HybridBinarizer
+     */
+    TIERED,
+    /**
+     * 每帧使用 GlobalHistogramBinarizer，隔帧再使用 HybridBinarizer
+     */
+    ALTERNATE,
+    /**
+     * 根据最近识别成功时使用的二值化方式自动选择
+     */
+    AUTO
+}
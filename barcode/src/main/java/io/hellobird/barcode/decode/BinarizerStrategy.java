@@ -0,0 +1,153 @@
+package io.hellobird.barcode.decode;
+
+import com.google.zxing.Binarizer;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.common.GlobalHistogramBinarizer;
+import com.google.zxing.common.HybridBinarizer;
+
+/*******************************************************************
+ * BinarizerStrategy.java  2026-10-18
+ * <P>
+ * 按 {@link BinarizerMode} 选择二值化方式并解析<br/>
+ * AUTO 模式下记录最近识别成功时使用的二值化方式：
+ * 光线良好、全局二值化能识别时，隔帧才再尝试 HybridBinarizer；
+ * 光线较差、只有 HybridBinarizer 能识别时，每4帧才尝试一次全局二值化<br/>
+ * 非线程安全，每个解析线程各自持有一个实例<br/>
+ * </p>
+ *
+ * @author:zhoupeng
+ *
+ ******************************************************************/
+final class BinarizerStrategy {
+
+    /**
+     * 每次识别成功时原有记录的衰减系数，使策略能跟随光线变化
+     */
+    private static final float WIN_DECAY = 0.9f;
+
+    /**
+     * 已解析的帧数，由 {@link #onFrame()} 推进，同一帧内的多次解析使用相同的选择
+     */
+    private int mFrameCount;
+
+    /**
+     * 全局二值化最近的识别成功次数（衰减后）
+     */
+    private float mGlobalWins;
+
+    /**
+     * HybridBinarizer最近的识别成功次数（衰减后）
+     */
+    private float mHybridWins;
+
+    /**
+     * 累计的二值化耗时，单位ns
+     */
+    private long mBinarizeNanos;
+
+    /**
+     * 开始解析新的一帧，每帧只调用一次，
+     * 同一帧内的多次解析（缩小图、原图、预处理、反色重试）按同一帧计算轮换
+     */
+    void onFrame() {
+        mFrameCount++;
+    }
+
+    /**
+     * 按策略二值化并解析
+     *
+     * @param source 图像源
+     * @param reader 解析器
+     * @param mode   二值化策略
+     * @return 解析结果
+     * @throws ReaderException 未找到或无法解析
+     */
+    Result decode(LuminanceSource source, FormatReader reader, BinarizerMode mode) throws ReaderException {
+        boolean tryGlobal;
+        boolean tryHybrid;
+        switch (mode) {
+            case HYBRID:
+                tryGlobal = false;
+                tryHybrid = true;
+                break;
+            case ALTERNATE:
+                tryGlobal = true;
+                tryHybrid = (mFrameCount & 1) == 0;
+                break;
+            case AUTO:
+                if (mGlobalWins > mHybridWins) {
+                    // 光线良好，全局二值化通常已足够
+                    tryGlobal = true;
+                    tryHybrid = (mFrameCount & 1) == 0;
+                } else if (mHybridWins > mGlobalWins * 2) {
+                    // 光线较差，全局二值化很少成功
+                    tryGlobal = (mFrameCount & 3) == 0;
+                    tryHybrid = true;
+                } else {
+                    tryGlobal = true;
+                    tryHybrid = true;
+                }
+                break;
+            case TIERED:
+            default:
+                tryGlobal = true;
+                tryHybrid = true;
+                break;
+        }
+
+        if (tryGlobal) {
+            try {
+                Result result = reader.decode(new BinaryBitmap(timed(new GlobalHistogramBinarizer(source))));
+                recordWin(true);
+                return result;
+            } catch (ReaderException re) {
+                // continue
+            }
+        }
+        if (tryHybrid) {
+            Result result = reader.decode(new BinaryBitmap(timed(new HybridBinarizer(source))));
+            recordWin(false);
+            return result;
+        }
+        throw NotFoundException.getNotFoundInstance();
+    }
+
+    private void recordWin(boolean global) {
+        mGlobalWins *= WIN_DECAY;
+        mHybridWins *= WIN_DECAY;
+        if (global) {
+            mGlobalWins++;
+        } else {
+            mHybridWins++;
+        }
+    }
+
+    /**
+     * 包装二值化方式，记录其耗时
+     *
+     * @param binarizer 二值化方式
+     * @return 记录耗时的二值化方式
+     */
+    Binarizer timed(Binarizer binarizer) {
+        return new TimedBinarizer(binarizer, this);
+    }
+
+    void addBinarizeTime(long nanos) {
+        mBinarizeNanos += nanos;
+    }
+
+    /**
+     * 取出累计的二值化耗时并清零
+     *
+     * @return 上次取出后的二值化耗时，单位ns
+     */
+    long takeBinarizeTime() {
+        long nanos = mBinarizeNanos;
+        mBinarizeNanos = 0;
+        return nanos;
+    }
+}
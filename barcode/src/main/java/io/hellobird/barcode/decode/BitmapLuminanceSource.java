@@ -0,0 +1,204 @@
+package io.hellobird.barcode.decode;
+
+import android.graphics.Bitmap;
+
+import com.google.zxing.LuminanceSource;
+
+/*******************************************************************
+ * BitmapLuminanceSource.java  2026-10-18
+ * <P>
+ * 直接从Bitmap读取亮度的图像源<br/>
+ * 不再复制整张图片的ARGB像素，每次只读取一行到复用的缓冲区中再计算亮度；
+ * 只有二值化需要整张亮度矩阵时才分配 width * height 字节，并缓存供同一图像源的后续解析使用<br/>
+ * 支持按EXIF方向查看图像，裁剪与旋转时共享同一个Bitmap，只改变坐标映射，不复制像素<br/>
+ * 非线程安全，解析期间不能回收或修改Bitmap<br/>
+ * </p>
+ *
+ * @author:zhoupeng
+ *
+ ******************************************************************/
+final class BitmapLuminanceSource extends LuminanceSource {
+
+    private final Bitmap mBitmap;
+
+    /**
+     * 本图像坐标(x, y)到Bitmap坐标的映射：
+     * bx = mXx * x + mXy * y + mX0，by = mYx * x + mYy * y + mY0，系数只取-1、0、1
+     */
+    private final int mXx;
+    private final int mXy;
+    private final int mX0;
+    private final int mYx;
+    private final int mYy;
+    private final int mY0;
+
+    /**
+     * 读取一行ARGB像素的缓冲区
+     */
+    private int[] mPixelRow;
+
+    /**
+     * 已计算的整张亮度矩阵
+     */
+    private byte[] mMatrix;
+
+    BitmapLuminanceSource(Bitmap bitmap) {
+        this(bitmap, ExifOrientation.NORMAL);
+    }
+
+    /**
+     * @param bitmap      以存储方向读取的图片
+     * @param orientation EXIF方向，本图像为按该方向摆正后的图像
+     */
+    BitmapLuminanceSource(Bitmap bitmap, int orientation) {
+        this(bitmap, orientedWidth(bitmap, orientation), orientedHeight(bitmap, orientation),
+                transform(bitmap, orientation));
+    }
+
+    private BitmapLuminanceSource(Bitmap bitmap, int width, int height, int[] transform) {
+        super(width, height);
+        mBitmap = bitmap;
+        mXx = transform[0];
+        mXy = transform[1];
+        mX0 = transform[2];
+        mYx = transform[3];
+        mYy = transform[4];
+        mY0 = transform[5];
+    }
+
+    private static boolean isTransposed(int orientation) {
+        return orientation >= ExifOrientation.TRANSPOSE && orientation <= ExifOrientation.ROTATE_270;
+    }
+
+    private static int orientedWidth(Bitmap bitmap, int orientation) {
+        return isTransposed(orientation) ? bitmap.getHeight() : bitmap.getWidth();
+    }
+
+    private static int orientedHeight(Bitmap bitmap, int orientation) {
+        return isTransposed(orientation) ? bitmap.getWidth() : bitmap.getHeight();
+    }
+
+    /**
+     * @return 摆正后的坐标到Bitmap坐标的映射，顺序同各系数字段
+     */
+    private static int[] transform(Bitmap bitmap, int orientation) {
+        int right = bitmap.getWidth() - 1;
+        int bottom = bitmap.getHeight() - 1;
+        switch (orientation) {
+            case ExifOrientation.FLIP_HORIZONTAL:
+                return new int[]{-1, 0, right, 0, 1, 0};
+            case ExifOrientation.ROTATE_180:
+                return new int[]{-1, 0, right, 0, -1, bottom};
+            case ExifOrientation.FLIP_VERTICAL:
+                return new int[]{1, 0, 0, 0, -1, bottom};
+            case ExifOrientation.TRANSPOSE:
+                return new int[]{0, 1, 0, 1, 0, 0};
+            case ExifOrientation.ROTATE_90:
+                return new int[]{0, 1, 0, -1, 0, bottom};
+            case ExifOrientation.TRANSVERSE:
+                return new int[]{0, -1, right, -1, 0, bottom};
+            case ExifOrientation.ROTATE_270:
+                return new int[]{0, -1, right, 1, 0, 0};
+            case ExifOrientation.NORMAL:
+            default:
+                return new int[]{1, 0, 0, 0, 1, 0};
+        }
+    }
+
+    @Override
+    public byte[] getRow(int y, byte[] row) {
+        if (y < 0 || y >= getHeight()) {
+            throw new IllegalArgumentException("Requested row is outside the image: " + y);
+        }
+        int width = getWidth();
+        if (row == null || row.length < width) {
+            row = new byte[width];
+        }
+        if (mMatrix != null) {
+            System.arraycopy(mMatrix, y * width, row, 0, width);
+        } else {
+            readRow(y, row, 0);
+        }
+        return row;
+    }
+
+    @Override
+    public byte[] getMatrix() {
+        if (mMatrix == null) {
+            int width = getWidth();
+            int height = getHeight();
+            byte[] matrix = new byte[width * height];
+            for (int y = 0; y < height; y++) {
+                readRow(y, matrix, y * width);
+            }
+            mMatrix = matrix;
+        }
+        return mMatrix;
+    }
+
+    /**
+     * 读取一行像素并按与 {@link com.google.zxing.RGBLuminanceSource} 相同的方式计算亮度；
+     * 本图像的一行对应Bitmap中的一行或一列，可能反向
+     *
+     * @param y      行号
+     * @param out    输出数组
+     * @param offset 输出的起始位置
+     */
+    private void readRow(int y, byte[] out, int offset) {
+        int width = getWidth();
+        if (mPixelRow == null) {
+            mPixelRow = new int[width];
+        }
+        int[] pixels = mPixelRow;
+        int startX = mXy * y + mX0;
+        int startY = mYy * y + mY0;
+        int step;
+        if (mYx == 0) {
+            // 对应Bitmap中的一行
+            step = mXx;
+            int left = step > 0 ? startX : startX - width + 1;
+            mBitmap.getPixels(pixels, 0, width, left, startY, width, 1);
+        } else {
+            // 对应Bitmap中的一列，stride为1时按列写入缓冲区
+            step = mYx;
+            int top = step > 0 ? startY : startY - width + 1;
+            mBitmap.getPixels(pixels, 0, 1, startX, top, 1, width);
+        }
+        for (int x = 0; x < width; x++) {
+            int pixel = pixels[step > 0 ? x : width - 1 - x];
+            int r = (pixel >> 16) & 0xff;
+            int g2 = (pixel >> 7) & 0x1fe;
+            int b = pixel & 0xff;
+            out[offset + x] = (byte) ((r + g2 + b) / 4);
+        }
+    }
+
+    @Override
+    public boolean isCropSupported() {
+        return true;
+    }
+
+    @Override
+    public LuminanceSource crop(int left, int top, int width, int height) {
+        if (left < 0 || top < 0 || left + width > getWidth() || top + height > getHeight()) {
+            throw new IllegalArgumentException("Crop rectangle does not fit within image data.");
+        }
+        return new BitmapLuminanceSource(mBitmap, width, height, new int[]{
+                mXx, mXy, mXx * left + mXy * top + mX0,
+                mYx, mYy, mYx * left + mYy * top + mY0});
+    }
+
+    @Override
+    public boolean isRotateSupported() {
+        return true;
+    }
+
+    @Override
+    public LuminanceSource rotateCounterClockwise() {
+        // 逆时针旋转后的(x', y')对应旋转前的(width - 1 - y', x')
+        int last = getWidth() - 1;
+        return new BitmapLuminanceSource(mBitmap, getHeight(), getWidth(), new int[]{
+                mXy, -mXx, mXx * last + mX0,
+                mYy, -mYx, mYx * last + mY0});
+    }
+}
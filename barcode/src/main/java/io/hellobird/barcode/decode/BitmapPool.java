@@ -0,0 +1,208 @@
+package io.hellobird.barcode.decode;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*******************************************************************
+ * BitmapPool.java  2026-10-18
+ * <P>
+ * 可复用Bitmap的缓存池，用于 {@link BitmapFactory.Options#inBitmap}<br/>
+ * 按占用字节数分组，读取图片时取出不小于所需大小的最小Bitmap复用，
+ * 超过容量时回收最早放入的Bitmap；Android 4.4以下只能复用尺寸完全相同且不采样的Bitmap<br/>
+ * 线程安全<br/>
+ * </p>
+ *
+ * @author:zhoupeng
+ *
+ ******************************************************************/
+public final class BitmapPool {
+
+    /**
+     * 复用的Bitmap最多为所需大小的倍数，避免小图长期占用大块内存
+     */
+    private static final int MAX_SIZE_MULTIPLE = 4;
+
+    /**
+     * 默认容量占最大可用内存的比例
+     */
+    private static final int DEFAULT_MEMORY_DIVISOR = 16;
+
+    private static volatile BitmapPool sDefault;
+
+    /**
+     * 以占用字节数分组的Bitmap
+     */
+    private final TreeMap<Integer, ArrayDeque<Bitmap>> mBuckets = new TreeMap<>();
+
+    /**
+     * 按放入的先后顺序排列，用于淘汰
+     */
+    private final LinkedHashSet<Bitmap> mOrder = new LinkedHashSet<>();
+
+    /**
+     * 容量，单位字节
+     */
+    private final long mMaxBytes;
+
+    /**
+     * 当前缓存的字节数
+     */
+    private long mBytes;
+
+    /**
+     * @param maxBytes 容量，单位字节
+     */
+    public BitmapPool(long maxBytes) {
+        mMaxBytes = maxBytes;
+    }
+
+    /**
+     * @return 共享的缓存池，容量为最大可用内存的1/16
+     */
+    public static BitmapPool getDefault() {
+        if (sDefault == null) {
+            synchronized (BitmapPool.class) {
+                if (sDefault == null) {
+                    sDefault = new BitmapPool(Runtime.getRuntime().maxMemory() / DEFAULT_MEMORY_DIVISOR);
+                }
+            }
+        }
+        return sDefault;
+    }
+
+    /**
+     * 归还不再使用的Bitmap，不可修改或已回收的Bitmap不会缓存
+     *
+     * @param bitmap 调用方此后不能再使用该Bitmap
+     */
+    public synchronized void put(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable() || mOrder.contains(bitmap)) {
+            return;
+        }
+        int size = byteCount(bitmap);
+        if (size > mMaxBytes) {
+            bitmap.recycle();
+            return;
+        }
+        ArrayDeque<Bitmap> bucket = mBuckets.get(size);
+        if (bucket == null) {
+            bucket = new ArrayDeque<>();
+            mBuckets.put(size, bucket);
+        }
+        bucket.addLast(bitmap);
+        mOrder.add(bitmap);
+        mBytes += size;
+        trimTo(mMaxBytes);
+    }
+
+    /**
+     * 取出可作为 {@link BitmapFactory.Options#inBitmap} 的Bitmap
+     *
+     * @param options 已读取尺寸（outWidth、outHeight）并设置了inSampleSize、inPreferredConfig的参数
+     * @return 可复用的Bitmap，没有合适的时为null
+     */
+    public synchronized Bitmap get(BitmapFactory.Options options) {
+        int sampleSize = Math.max(1, options.inSampleSize);
+        int width = (options.outWidth + sampleSize - 1) / sampleSize;
+        int height = (options.outHeight + sampleSize - 1) / sampleSize;
+        Bitmap.Config config = options.inPreferredConfig == null
+                ? Bitmap.Config.ARGB_8888 : options.inPreferredConfig;
+        int needed = width * height * bytesPerPixel(config);
+        if (needed <= 0) {
+            return null;
+        }
+        int maxSize = needed > Integer.MAX_VALUE / MAX_SIZE_MULTIPLE ? Integer.MAX_VALUE : needed * MAX_SIZE_MULTIPLE;
+        for (Map.Entry<Integer, ArrayDeque<Bitmap>> entry : mBuckets.tailMap(needed, true).entrySet()) {
+            if (entry.getKey() > maxSize) {
+                break;
+            }
+            Iterator<Bitmap> iterator = entry.getValue().iterator();
+            while (iterator.hasNext()) {
+                Bitmap candidate = iterator.next();
+                if (canReuse(candidate, options, width, height, config)) {
+                    iterator.remove();
+                    if (entry.getValue().isEmpty()) {
+                        mBuckets.remove(entry.getKey());
+                    }
+                    mOrder.remove(candidate);
+                    mBytes -= entry.getKey();
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 回收所有缓存的Bitmap
+     */
+    public synchronized void clear() {
+        trimTo(0);
+    }
+
+    /**
+     * @return 当前缓存的字节数
+     */
+    public synchronized long getSize() {
+        return mBytes;
+    }
+
+    private void trimTo(long maxBytes) {
+        Iterator<Bitmap> iterator = mOrder.iterator();
+        while (mBytes > maxBytes && iterator.hasNext()) {
+            Bitmap bitmap = iterator.next();
+            iterator.remove();
+            int size = byteCount(bitmap);
+            ArrayDeque<Bitmap> bucket = mBuckets.get(size);
+            bucket.remove(bitmap);
+            if (bucket.isEmpty()) {
+                mBuckets.remove(size);
+            }
+            mBytes -= size;
+            bitmap.recycle();
+        }
+    }
+
+    private static boolean canReuse(Bitmap candidate, BitmapFactory.Options options,
+                                    int width, int height, Bitmap.Config config) {
+        if (candidate.getConfig() != config) {
+            // inBitmap的格式会覆盖inPreferredConfig
+            return false;
+        }
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT) {
+            // 4.4以下只能复用尺寸相同的Bitmap，不能采样，且只支持JPEG与PNG
+            return ("image/jpeg".equals(options.outMimeType) || "image/png".equals(options.outMimeType))
+                    && candidate.getWidth() == options.outWidth
+                    && candidate.getHeight() == options.outHeight
+                    && options.inSampleSize <= 1;
+        }
+        return width * height * bytesPerPixel(config) <= byteCount(candidate);
+    }
+
+    private static int byteCount(Bitmap bitmap) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            return bitmap.getAllocationByteCount();
+        }
+        return bitmap.getByteCount();
+    }
+
+    private static int bytesPerPixel(Bitmap.Config config) {
+        switch (config) {
+            case ALPHA_8:
+                return 1;
+            case RGB_565:
+            case ARGB_4444:
+                return 2;
+            case ARGB_8888:
+            default:
+                return 4;
+        }
+    }
+}
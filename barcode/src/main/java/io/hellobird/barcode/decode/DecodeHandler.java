@@ -16,7 +16,7 @@
 
 package io.hellobird.barcode.decode;
 
-import android.graphics.Bitmap;
+import android.graphics.Rect;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
@@ -25,13 +25,16 @@ import android.util.Log;
 
 import com.google.zxing.BinaryBitmap;
 import com.google.zxing.DecodeHintType;
-import com.google.zxing.MultiFormatReader;
+import com.google.zxing.NotFoundException;
 import com.google.zxing.PlanarYUVLuminanceSource;
 import com.google.zxing.ReaderException;
 import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+import com.google.zxing.ResultPointCallback;
+import com.google.zxing.common.GlobalHistogramBinarizer;
 import com.google.zxing.common.HybridBinarizer;
 
-import java.io.ByteArrayOutputStream;
+import java.util.EnumMap;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
@@ -47,29 +50,127 @@ public final class DecodeHandler extends Handler {
         int quit = 2;
         int decode_succeeded = 3;
         int decode_failed = 4;
+        /**
+         * 多码解析成功，obj为Result[]
+         */
+        int decode_succeeded_multiple = 5;
 
     }
 
     private static final String TAG = DecodeHandler.class.getSimpleName();
 
+    /**
+     * {@link DecodeTier#WIDE} 档位扫描框的放大倍数
+     */
+    private static final float WIDE_CROP_SCALE = 1.5f;
+
+    /**
+     * 缩略图的缩小倍数，与 {@link PlanarYUVLuminanceSource#renderThumbnail()} 一致
+     */
+    private static final int THUMBNAIL_SUBSAMPLING = 2;
+
     /**
      * 回调主线程的handler
      */
     private Handler mainHandler;
     private CameraManager cameraManager;
-    private final MultiFormatReader multiFormatReader;
+    /**
+     * 根据解析格式选择的解析器
+     */
+    private final FormatReader reader;
+    /**
+     * 开启TRY_HARDER的解析器，用于较高的解析档位
+     */
+    private final FormatReader hardReader;
+    /**
+     * 多码解析器
+     */
+    private final MultiSymbolReader multiReader;
+    /**
+     * 开启TRY_HARDER的多码解析器，用于较高的解析档位
+     */
+    private final MultiSymbolReader hardMultiReader;
+    /**
+     * 解析档位策略，由所有解析线程共享
+     */
+    private final EscalationPolicy escalation;
+    /**
+     * 解析选项，由所有解析线程共享
+     */
+    private final DecodeOptions options;
+    /**
+     * 清晰度过滤
+     */
+    private final SharpnessGate sharpnessGate = new SharpnessGate();
+    /**
+     * 二值化策略
+     */
+    private final BinarizerStrategy binarizerStrategy = new BinarizerStrategy();
+    /**
+     * 特征点回调，记录每次解析找到的特征点
+     */
+    private final PointCollector pointCollector;
+    /**
+     * 反色策略
+     */
+    private final InvertStrategy invertStrategy;
+    /**
+     * 高分辨率预览下的缩小倍数选择
+     */
+    private final PyramidStrategy pyramidStrategy = new PyramidStrategy();
+    /**
+     * 解析失败后重试时的亮度预处理
+     */
+    private final LuminancePreprocessor preprocessor = new LuminancePreprocessor();
+    /**
+     * 已进行预处理的帧数，用于按顺序选择本帧的预处理方式
+     */
+    private int preprocessCount;
+    /**
+     * 码所在区域的跟踪，由所有解析线程共享
+     */
+    private final RoiTracker roiTracker;
+    /**
+     * 本线程当前帧各阶段的耗时
+     */
+    private final FrameMetrics frameMetrics;
+    /**
+     * 生成缩略图时复用的行缓冲区
+     */
+    private byte[] thumbnailRow;
     private boolean running = true;
     /**
      * 是否回传bitmap
      */
     private boolean callBackBitmap;
+    /**
+     * 所属解析线程的编号，通过回传消息的arg1带回
+     */
+    private final int workerId;
 
-    DecodeHandler(Handler mainHandler, CameraManager cameraManager, Map<DecodeHintType, Object> hints, boolean callBackBitmap) {
-        multiFormatReader = new MultiFormatReader();
-        multiFormatReader.setHints(hints);
+    DecodeHandler(Handler mainHandler, CameraManager cameraManager, Map<DecodeHintType, Object> hints,
+                  DecodeOptions options, FormatStatistics statistics, EscalationPolicy escalation,
+                  RoiTracker roiTracker, FrameMetrics frameMetrics, boolean callBackBitmap, int workerId) {
+        // 每个解析线程使用各自的特征点回调，以便判断本线程的解析是否找到了特征点
+        pointCollector = new PointCollector(
+                (ResultPointCallback) hints.get(DecodeHintType.NEED_RESULT_POINT_CALLBACK));
+        invertStrategy = new InvertStrategy(pointCollector);
+        Map<DecodeHintType, Object> workerHints = new EnumMap<>(hints);
+        workerHints.put(DecodeHintType.NEED_RESULT_POINT_CALLBACK, pointCollector);
+        reader = new FormatReader(workerHints, statistics);
+        Map<DecodeHintType, Object> hardHints = new EnumMap<>(workerHints);
+        hardHints.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
+        hardReader = new FormatReader(hardHints, statistics);
+        multiReader = new MultiSymbolReader(workerHints);
+        hardMultiReader = new MultiSymbolReader(hardHints);
+        this.escalation = escalation;
+        this.roiTracker = roiTracker;
+        this.frameMetrics = frameMetrics;
+        this.options = options;
         this.mainHandler = mainHandler;
         this.cameraManager = cameraManager;
         this.callBackBitmap = callBackBitmap;
+        this.workerId = workerId;
     }
 
     @Override
@@ -98,49 +199,254 @@ public final class DecodeHandler extends Handler {
      * @param height The height of the preview frame.
      */
     private void decode(byte[] data, int width, int height) {
+        if (options.isMultiDecodeEnabled()) {
+            decodeMultiple(data, width, height);
+            return;
+        }
         long start = System.nanoTime();
         Result rawResult = null;
-        PlanarYUVLuminanceSource source = cameraManager.buildLuminanceSource(data, width, height);
-        if (source != null) {
-            BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(source));
-            try {
-                rawResult = multiFormatReader.decodeWithState(bitmap);
-            } catch (ReaderException re) {
-                // continue
-            } finally {
-                multiFormatReader.reset();
+        Bundle thumbnail = null;
+        boolean attempted = false;
+        DecodeTier tier = escalation.getTier();
+        // 扩大扫描框时不跟踪，其余档位优先只解析上一次找到码的区域
+        boolean tracking = tier != DecodeTier.WIDE && options.isRoiTrackingEnabled();
+        Rect region = tracking ? roiTracker.getRegion() : null;
+        // 本帧解析的区域，扩大扫描框时为null
+        Rect rect = null;
+        int factor = 1;
+        PlanarYUVLuminanceSource source = null;
+        long sourceStart = System.nanoTime();
+        if (tier == DecodeTier.WIDE) {
+            source = cameraManager.buildLuminanceSource(data, width, height, WIDE_CROP_SCALE);
+        } else {
+            rect = region != null ? region : cameraManager.getFramingRectInPreview();
+            if (rect != null) {
+                if (options.isPyramidEnabled()) {
+                    factor = pyramidStrategy.getFactor(rect.width(), rect.height());
+                }
+                source = cameraManager.buildLuminanceSource(data, width, height, rect, factor);
+            }
+        }
+        frameMetrics.add(FrameMetrics.Stage.SOURCE, System.nanoTime() - sourceStart);
+        if (source != null && isSharpEnough(source)) {
+            attempted = true;
+            invertStrategy.onFrame();
+            binarizerStrategy.onFrame();
+            reader.onFrame();
+            hardReader.onFrame();
+            long decodeStart = System.nanoTime();
+            rawResult = decodeSource(source, tier);
+            if (rawResult == null && factor > 1) {
+                // 缩小后未识别，可能码较小，解析原分辨率图像
+                factor = 1;
+                sourceStart = System.nanoTime();
+                source = cameraManager.buildLuminanceSource(data, width, height, rect);
+                long sourceNanos = System.nanoTime() - sourceStart;
+                frameMetrics.add(FrameMetrics.Stage.SOURCE, sourceNanos);
+                rawResult = decodeSource(source, tier);
+                decodeStart += sourceNanos;
+            }
+            PreprocessStage[] stages = options.preprocessStages();
+            if (rawResult == null && tier != DecodeTier.FAST && stages.length > 0) {
+                // 每帧只尝试梯度中的一种预处理，连续失败的帧依次轮换
+                if (preprocessCount >= stages.length) {
+                    preprocessCount = 0;
+                }
+                PreprocessStage stage = stages[preprocessCount++];
+                PlanarYUVLuminanceSource processed = preprocessor.apply(stage, source);
+                rawResult = decodeSource(processed, tier);
+                if (rawResult != null) {
+                    source = processed;
+                }
+            }
+            if (rawResult != null && rect != null && options.isPyramidEnabled()) {
+                pyramidStrategy.onDecoded(rawResult, factor);
+            }
+            long decodeNanos = System.nanoTime() - decodeStart;
+            recordDecodeTime(decodeNanos);
+            escalation.getStatistics().record(tier, decodeNanos, rawResult != null);
+            if (tracking) {
+                track(rawResult, rect, factor);
             }
         }
+        if (rawResult != null && callBackBitmap) {
+            // 缩略图需在归还帧数据前生成
+            thumbnail = new Bundle();
+            bundleThumbnail(source, thumbnail);
+        }
+        // 帧数据已不再使用，归还给相机缓冲池
+        cameraManager.releasePreviewFrame(data);
 
+        long end = System.nanoTime();
+        frameMetrics.set(FrameMetrics.Stage.TOTAL, end - start);
+        frameMetrics.finish(attempted, rawResult != null, end);
         if (rawResult != null) {
             // Don't log the barcode contents for security.
-            long end = System.nanoTime();
-            Log.d(TAG, "Found barcode in " + TimeUnit.NANOSECONDS.toMillis(end - start) + " ms");
+            Log.d(TAG, "Found barcode in " + TimeUnit.NANOSECONDS.toMillis(end - start) + " ms, tier " + tier);
             if (mainHandler != null) {
-                Message message = Message.obtain(mainHandler, Msg.decode_succeeded, rawResult);
-                if (callBackBitmap) {
-                    Bundle bundle = new Bundle();
-                    bundleThumbnail(source, bundle);
-                    message.setData(bundle);
+                Message message = Message.obtain(mainHandler, Msg.decode_succeeded, workerId, 0, rawResult);
+                if (thumbnail != null) {
+                    message.setData(thumbnail);
                 }
                 message.sendToTarget();
             }
         } else {
             if (mainHandler != null) {
-                Message message = Message.obtain(mainHandler, Msg.decode_failed);
+                // arg2为1表示该帧已实际解析，模糊而跳过的帧不计入连续失败次数
+                Message message = Message.obtain(mainHandler, Msg.decode_failed, workerId, attempted ? 1 : 0);
                 message.sendToTarget();
             }
         }
     }
 
-    private static void bundleThumbnail(PlanarYUVLuminanceSource source, Bundle bundle) {
-        int[] pixels = source.renderThumbnail();
-        int width = source.getThumbnailWidth();
-        int height = source.getThumbnailHeight();
-        Bitmap bitmap = Bitmap.createBitmap(pixels, 0, width, width, height, Bitmap.Config.ARGB_8888);
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        bitmap.compress(Bitmap.CompressFormat.JPEG, 50, out);
-        bundle.putByteArray(DecodeThread.BARCODE_BITMAP, out.toByteArray());
+    /**
+     * 将解析耗时分为二值化与解析器两部分记录
+     *
+     * @param decodeNanos 解析总耗时，单位ns
+     */
+    private void recordDecodeTime(long decodeNanos) {
+        long binarizeNanos = binarizerStrategy.takeBinarizeTime();
+        frameMetrics.add(FrameMetrics.Stage.BINARIZE, binarizeNanos);
+        frameMetrics.add(FrameMetrics.Stage.READ, Math.max(0, decodeNanos - binarizeNanos));
+    }
+
+    /**
+     * 按档位解析图像源
+     *
+     * @param source 图像源
+     * @param tier   解析档位
+     * @return 解析结果，未识别时为null
+     */
+    private Result decodeSource(PlanarYUVLuminanceSource source, DecodeTier tier) {
+        try {
+            if (tier == DecodeTier.FAST) {
+                return invertStrategy.decode(source, reader, binarizerStrategy,
+                        options.getBinarizerMode(), options.getInvertMode());
+            }
+            // 较高档位依次尝试两种二值化方式
+            return invertStrategy.decode(source, hardReader, binarizerStrategy,
+                    BinarizerMode.TIERED, options.getInvertMode());
+        } catch (ReaderException re) {
+            return null;
+        }
+    }
+
+    /**
+     * 根据本帧的识别结果或找到的特征点更新码所在的区域
+     *
+     * @param rawResult 识别结果，未识别成功时为null
+     * @param rect      本帧的解析区域
+     * @param factor    识别成功时图像的缩小倍数
+     */
+    private void track(Result rawResult, Rect rect, int factor) {
+        Rect framingRect = cameraManager.getFramingRectInPreview();
+        if (framingRect == null) {
+            return;
+        }
+        if (rawResult != null && rawResult.getResultPoints() != null) {
+            // 识别成功时只使用结果中的点，其它解析器找到的特征点可能是误识别
+            pointCollector.reset();
+            for (ResultPoint point : rawResult.getResultPoints()) {
+                if (point != null) {
+                    pointCollector.add(point.getX() * factor, point.getY() * factor);
+                }
+            }
+        }
+        // 未识别成功时最后一次解析的是原分辨率图像，特征点坐标无需换算
+        if (pointCollector.getCount() > 0) {
+            roiTracker.onPointsFound(pointCollector, rect, framingRect, rawResult != null);
+        } else {
+            roiTracker.onMissed();
+        }
+    }
+
+    /**
+     * 解析帧中的所有码，先使用全局二值化，未找到时再使用 HybridBinarizer
+     *
+     * @param data   The YUV preview frame.
+     * @param width  The width of the preview frame.
+     * @param height The height of the preview frame.
+     */
+    private void decodeMultiple(byte[] data, int width, int height) {
+        long start = System.nanoTime();
+        Result[] rawResults = null;
+        boolean attempted = false;
+        DecodeTier tier = escalation.getTier();
+        PlanarYUVLuminanceSource source = tier == DecodeTier.WIDE
+                ? cameraManager.buildLuminanceSource(data, width, height, WIDE_CROP_SCALE)
+                : cameraManager.buildLuminanceSource(data, width, height);
+        frameMetrics.add(FrameMetrics.Stage.SOURCE, System.nanoTime() - start);
+        if (source != null && isSharpEnough(source)) {
+            attempted = true;
+            long decodeStart = System.nanoTime();
+            MultiSymbolReader multiSymbolReader = tier == DecodeTier.FAST ? multiReader : hardMultiReader;
+            try {
+                rawResults = multiSymbolReader.decodeMultiple(
+                        new BinaryBitmap(binarizerStrategy.timed(new GlobalHistogramBinarizer(source))));
+            } catch (NotFoundException nfe) {
+                try {
+                    rawResults = multiSymbolReader.decodeMultiple(
+                            new BinaryBitmap(binarizerStrategy.timed(new HybridBinarizer(source))));
+                } catch (NotFoundException hybridNfe) {
+                    // continue
+                }
+            }
+            long decodeNanos = System.nanoTime() - decodeStart;
+            recordDecodeTime(decodeNanos);
+            escalation.getStatistics().record(tier, decodeNanos, rawResults != null);
+        }
+        // 帧数据已不再使用，归还给相机缓冲池
+        cameraManager.releasePreviewFrame(data);
+
+        long end = System.nanoTime();
+        frameMetrics.set(FrameMetrics.Stage.TOTAL, end - start);
+        frameMetrics.finish(attempted, rawResults != null, end);
+        if (mainHandler != null) {
+            Message message;
+            if (rawResults != null) {
+                message = Message.obtain(mainHandler, Msg.decode_succeeded_multiple, workerId, 0, rawResults);
+            } else {
+                message = Message.obtain(mainHandler, Msg.decode_failed, workerId, attempted ? 1 : 0);
+            }
+            message.sendToTarget();
+        }
+    }
+
+    /**
+     * 判断帧是否足够清晰，模糊的帧跳过二值化与解析，清晰度同时上报给相机用于对焦
+     *
+     * @param source 扫描框内的图像源
+     * @return true 需要解析该帧
+     */
+    private boolean isSharpEnough(PlanarYUVLuminanceSource source) {
+        if (!options.isSharpnessGateEnabled()) {
+            return true;
+        }
+        boolean sharp = sharpnessGate.isSharp(source);
+        cameraManager.reportFrameSharpness(sharpnessGate.getLastScore(), sharp);
+        return sharp;
+    }
+
+    /**
+     * 隔行隔列取出缩略图的亮度数据，Bitmap延迟到结果的使用方需要时才生成
+     *
+     * @param source 识别成功的图像源
+     * @param bundle 回传的数据
+     */
+    private void bundleThumbnail(PlanarYUVLuminanceSource source, Bundle bundle) {
+        int width = source.getWidth() / THUMBNAIL_SUBSAMPLING;
+        int height = source.getHeight() / THUMBNAIL_SUBSAMPLING;
+        byte[] thumbnail = new byte[width * height];
+        for (int y = 0; y < height; y++) {
+            thumbnailRow = source.getRow(y * THUMBNAIL_SUBSAMPLING, thumbnailRow);
+            int offset = y * width;
+            for (int x = 0; x < width; x++) {
+                thumbnail[offset + x] = thumbnailRow[x * THUMBNAIL_SUBSAMPLING];
+            }
+        }
+        bundle.putByteArray(DecodeThread.BARCODE_BITMAP, thumbnail);
+        bundle.putInt(DecodeThread.BARCODE_THUMBNAIL_WIDTH, width);
+        bundle.putInt(DecodeThread.BARCODE_THUMBNAIL_HEIGHT, height);
         bundle.putFloat(DecodeThread.BARCODE_SCALED_FACTOR, (float) width / source.getWidth());
     }
 
@@ -0,0 +1,303 @@
+package io.hellobird.barcode.decode;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/*******************************************************************
+ * DecodeMetrics.java  2026-10-18
+ * <P>
+ * 解析流程的耗时与计数统计<br/>
+ * 各阶段保留最近 {@link #WINDOW} 个样本，用于计算分位数；
+ * 每帧解析结束后在主线程回调 {@link Listener}<br/>
+ * 由 {@link DecodeThreadPool} 持有，只在主线程中使用<br/>
+ * </p>
+ *
+ * @author:zhoupeng
+ *
+ ******************************************************************/
+public final class DecodeMetrics {
+
+    /**
+     * 每帧解析结束后的回调
+     */
+    public interface Listener {
+        /**
+         * 在主线程中回调
+         *
+         * @param frame 该帧各阶段的耗时，回调结束后会被复用
+         */
+        void onFrameMetrics(FrameMetrics frame);
+    }
+
+    /**
+     * 各阶段保留的样本数
+     */
+    public static final int WINDOW = 128;
+
+    private static final FrameMetrics.Stage[] STAGES = FrameMetrics.Stage.values();
+
+    /**
+     * 各阶段最近的耗时样本，单位ns，环形存放
+     */
+    private final long[][] mSamples = new long[STAGES.length][WINDOW];
+
+    /**
+     * 各阶段的样本总数
+     */
+    private final int[] mSampleCounts = new int[STAGES.length];
+
+    /**
+     * 各解析线程当前帧的耗时
+     */
+    private final FrameMetrics[] mFrames;
+
+    /**
+     * 识别成功的帧数
+     */
+    private int mDecodedCount;
+
+    /**
+     * 解析后未识别的帧数
+     */
+    private int mFailedCount;
+
+    /**
+     * 因模糊而未解析的帧数
+     */
+    private int mBlurryCount;
+
+    /**
+     * 上一帧到达的时间，单位ns
+     */
+    private long mLastArrival;
+
+    /**
+     * 最近两帧到达的时间间隔，单位ns
+     */
+    private long mLastInterval;
+
+    private Listener mListener;
+
+    DecodeMetrics(int threadCount) {
+        mFrames = new FrameMetrics[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            mFrames[i] = new FrameMetrics();
+        }
+    }
+
+    void setListener(Listener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * @param worker 解析线程编号
+     * @return 该线程当前帧的耗时记录
+     */
+    FrameMetrics getFrame(int worker) {
+        return mFrames[worker];
+    }
+
+    /**
+     * 收到相机帧时调用
+     *
+     * @param now 当前时间，单位ns
+     */
+    void onFrameArrived(long now) {
+        if (mLastArrival != 0) {
+            mLastInterval = now - mLastArrival;
+            addSample(FrameMetrics.Stage.ARRIVAL_INTERVAL, mLastInterval);
+        }
+        mLastArrival = now;
+    }
+
+    /**
+     * 帧分发给解析线程前调用
+     *
+     * @param worker 解析线程编号
+     */
+    void onFrameDispatched(int worker) {
+        mFrames[worker].begin(mLastInterval);
+    }
+
+    /**
+     * 主线程收到当前解析轮次的结果时调用，停止或重新开始解析前发出的帧不计入
+     *
+     * @param worker 解析线程编号
+     * @param now    当前时间，单位ns
+     */
+    void onFrameFinished(int worker, long now) {
+        FrameMetrics frame = mFrames[worker];
+        frame.set(FrameMetrics.Stage.DISPATCH, now - frame.getPostTime());
+        if (frame.isDecoded()) {
+            mDecodedCount++;
+        } else if (frame.isAttempted()) {
+            mFailedCount++;
+        } else {
+            mBlurryCount++;
+        }
+        // 到达间隔已在收到帧时记录
+        for (FrameMetrics.Stage stage : STAGES) {
+            if (stage != FrameMetrics.Stage.ARRIVAL_INTERVAL
+                    && (frame.isAttempted() || stage == FrameMetrics.Stage.DISPATCH
+                    || stage == FrameMetrics.Stage.TOTAL)) {
+                addSample(stage, frame.getNanos(stage));
+            }
+        }
+        if (mListener != null) {
+            mListener.onFrameMetrics(frame);
+        }
+    }
+
+    /**
+     * 生成当前的统计快照
+     *
+     * @param received  收到的相机帧数
+     * @param dropped   因有更新的帧或超时而未解析的帧数
+     * @param skipped   因与失败帧相同或设备快速移动而跳过的帧数
+     * @param processed 交给解析线程的帧数
+     * @return 快照
+     */
+    MetricsSnapshot snapshot(int received, int dropped, int skipped, int processed) {
+        long[][] sorted = new long[STAGES.length][];
+        for (int i = 0; i < STAGES.length; i++) {
+            int count = Math.min(mSampleCounts[i], WINDOW);
+            sorted[i] = Arrays.copyOf(mSamples[i], count);
+            Arrays.sort(sorted[i]);
+        }
+        return new MetricsSnapshot(received, dropped, skipped, processed,
+                mDecodedCount, mFailedCount, mBlurryCount, sorted);
+    }
+
+    private void addSample(FrameMetrics.Stage stage, long nanos) {
+        int index = stage.ordinal();
+        mSamples[index][mSampleCounts[index] % WINDOW] = nanos;
+        mSampleCounts[index]++;
+    }
+
+    /**
+     * 统计快照，创建后不再变化，可在任意线程中读取
+     */
+    public static final class MetricsSnapshot {
+
+        private final int mReceived;
+        private final int mDropped;
+        private final int mSkipped;
+        private final int mProcessed;
+        private final int mDecoded;
+        private final int mFailed;
+        private final int mBlurry;
+
+        /**
+         * 各阶段已排序的最近样本
+         */
+        private final long[][] mSorted;
+
+        MetricsSnapshot(int received, int dropped, int skipped, int processed,
+                        int decoded, int failed, int blurry, long[][] sorted) {
+            mReceived = received;
+            mDropped = dropped;
+            mSkipped = skipped;
+            mProcessed = processed;
+            mDecoded = decoded;
+            mFailed = failed;
+            mBlurry = blurry;
+            mSorted = sorted;
+        }
+
+        /**
+         * @return 收到的相机帧数
+         */
+        public int getReceivedCount() {
+            return mReceived;
+        }
+
+        /**
+         * @return 因有更新的帧或超时而未解析的帧数
+         */
+        public int getDroppedCount() {
+            return mDropped;
+        }
+
+        /**
+         * @return 因与失败帧相同或设备快速移动而跳过的帧数
+         */
+        public int getSkippedCount() {
+            return mSkipped;
+        }
+
+        /**
+         * @return 交给解析线程的帧数
+         */
+        public int getProcessedCount() {
+            return mProcessed;
+        }
+
+        /**
+         * @return 识别成功的帧数
+         */
+        public int getDecodedCount() {
+            return mDecoded;
+        }
+
+        /**
+         * @return 解析后未识别的帧数
+         */
+        public int getFailedCount() {
+            return mFailed;
+        }
+
+        /**
+         * @return 因模糊而未解析的帧数
+         */
+        public int getBlurryCount() {
+            return mBlurry;
+        }
+
+        /**
+         * @param stage 阶段
+         * @return 该阶段参与统计的最近样本数
+         */
+        public int getSampleCount(FrameMetrics.Stage stage) {
+            return mSorted[stage.ordinal()].length;
+        }
+
+        /**
+         * 最近样本中该阶段耗时的分位数
+         *
+         * @param stage      阶段
+         * @param percentile 分位，0~100
+         * @return 耗时，单位ns，没有样本时为0
+         */
+        public long getPercentileNanos(FrameMetrics.Stage stage, float percentile) {
+            long[] samples = mSorted[stage.ordinal()];
+            if (samples.length == 0) {
+                return 0;
+            }
+            int index = Math.round(percentile / 100f * (samples.length - 1));
+            return samples[Math.max(0, Math.min(samples.length - 1, index))];
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder()
+                    .append("received: ").append(mReceived)
+                    .append(", dropped: ").append(mDropped)
+                    .append(", skipped: ").append(mSkipped)
+                    .append(", processed: ").append(mProcessed)
+                    .append(", decoded: ").append(mDecoded)
+                    .append(", failed: ").append(mFailed)
+                    .append(", blurry: ").append(mBlurry);
+            for (FrameMetrics.Stage stage : STAGES) {
+                builder.append(", ").append(stage).append(" p50/p90/p99: ")
+                        .append(toMicros(getPercentileNanos(stage, 50))).append('/')
+                        .append(toMicros(getPercentileNanos(stage, 90))).append('/')
+                        .append(toMicros(getPercentileNanos(stage, 99))).append(" us");
+            }
+            return builder.toString();
+        }
+
+        private static long toMicros(long nanos) {
+            return TimeUnit.NANOSECONDS.toMicros(nanos);
+        }
+    }
+}
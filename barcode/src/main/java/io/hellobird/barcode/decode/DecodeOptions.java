@@ -0,0 +1,236 @@
+package io.hellobird.barcode.decode;
+
+/*******************************************************************
+ * DecodeOptions.java  2026-10-18
+ * <P>
+ * 相机帧解析选项<br/>
+ * 由 {@link DecodeThreadPool} 持有并共享给所有解析线程，解析过程中修改会在下一帧生效<br/>
+ * </p>
+ *
+ * @author:zhoupeng
+ *
+ ******************************************************************/
+public final class DecodeOptions {
+
+    /**
+     * 是否跳过模糊的帧
+     */
+    private volatile boolean mSharpnessGateEnabled = true;
+
+    /**
+     * 是否跳过与上一次解析失败的帧几乎相同的帧
+     */
+    private volatile boolean mSimilarityGateEnabled = true;
+
+    /**
+     * 是否跳过设备快速移动时的帧
+     */
+    private volatile boolean mMotionGateEnabled;
+
+    /**
+     * 二值化策略
+     */
+    private volatile BinarizerMode mBinarizerMode = BinarizerMode.AUTO;
+
+    /**
+     * 反色码识别方式
+     */
+    private volatile InvertMode mInvertMode = InvertMode.OFF;
+
+    /**
+     * 默认连续解析失败多少帧后提升解析档位
+     */
+    public static final int DEFAULT_ESCALATION_THRESHOLD = 8;
+
+    /**
+     * 连续解析失败多少帧后提升解析档位
+     */
+    private volatile int mEscalationThreshold = DEFAULT_ESCALATION_THRESHOLD;
+
+    /**
+     * 是否解析每帧中的所有码
+     */
+    private volatile boolean mMultiDecodeEnabled;
+
+    /**
+     * 是否只解析上一次找到码的区域
+     */
+    private volatile boolean mRoiTrackingEnabled = true;
+
+    /**
+     * 扫描框较大时是否先解析缩小后的图像
+     */
+    private volatile boolean mPyramidEnabled = true;
+
+    /**
+     * 提升解析档位后，解析失败时依次尝试的预处理
+     */
+    private volatile PreprocessStage[] mPreprocessStages = new PreprocessStage[0];
+
+    /**
+     * @return 是否跳过模糊的帧
+     */
+    public boolean isSharpnessGateEnabled() {
+        return mSharpnessGateEnabled;
+    }
+
+    /**
+     * 设置是否跳过模糊的帧，开启后对焦过程中的模糊帧不再进行二值化与解析
+     *
+     * @param enabled true 跳过，false 每帧都解析
+     */
+    public void setSharpnessGateEnabled(boolean enabled) {
+        mSharpnessGateEnabled = enabled;
+    }
+
+    /**
+     * @return 是否跳过与上一次解析失败的帧几乎相同的帧
+     */
+    public boolean isSimilarityGateEnabled() {
+        return mSimilarityGateEnabled;
+    }
+
+    /**
+     * 设置是否跳过与上一次解析失败的帧几乎相同的帧，设备静止时不再重复解析同一画面
+     *
+     * @param enabled true 跳过，false 每帧都解析
+     */
+    public void setSimilarityGateEnabled(boolean enabled) {
+        mSimilarityGateEnabled = enabled;
+    }
+
+    /**
+     * @return 是否跳过设备快速移动时的帧
+     */
+    public boolean isMotionGateEnabled() {
+        return mMotionGateEnabled;
+    }
+
+    /**
+     * 设置是否通过陀螺仪或加速度传感器跳过设备快速移动时的帧，在下一次开始解析时生效
+     *
+     * @param enabled true 跳过，false 每帧都解析
+     */
+    public void setMotionGateEnabled(boolean enabled) {
+        mMotionGateEnabled = enabled;
+    }
+
+    /**
+     * @return 二值化策略
+     */
+    public BinarizerMode getBinarizerMode() {
+        return mBinarizerMode;
+    }
+
+    /**
+     * 设置二值化策略
+     *
+     * @param mode 二值化策略，默认为 {@link BinarizerMode#AUTO}
+     */
+    public void setBinarizerMode(BinarizerMode mode) {
+        mBinarizerMode = mode;
+    }
+
+    /**
+     * @return 反色码识别方式
+     */
+    public InvertMode getInvertMode() {
+        return mInvertMode;
+    }
+
+    /**
+     * 设置反色码识别方式
+     *
+     * @param mode 反色码识别方式，默认为 {@link InvertMode#OFF}
+     */
+    public void setInvertMode(InvertMode mode) {
+        mInvertMode = mode;
+    }
+
+    /**
+     * @return 连续解析失败多少帧后提升解析档位，小于等于0时不提升
+     */
+    public int getEscalationThreshold() {
+        return mEscalationThreshold;
+    }
+
+    /**
+     * 设置连续解析失败多少帧后提升解析档位，见 {@link DecodeTier}
+     *
+     * @param threshold 失败帧数，默认为 {@link #DEFAULT_ESCALATION_THRESHOLD}，小于等于0时始终使用 {@link DecodeTier#FAST}
+     */
+    public void setEscalationThreshold(int threshold) {
+        mEscalationThreshold = threshold;
+    }
+
+    /**
+     * @return 是否解析每帧中的所有码
+     */
+    public boolean isMultiDecodeEnabled() {
+        return mMultiDecodeEnabled;
+    }
+
+    /**
+     * 设置是否解析每帧中的所有码，开启后解析成功时回传 {@link DecodeHandler.Msg#decode_succeeded_multiple}
+     *
+     * @param enabled true 解析所有码，false 每帧只解析一个码
+     */
+    public void setMultiDecodeEnabled(boolean enabled) {
+        mMultiDecodeEnabled = enabled;
+    }
+
+    /**
+     * @return 是否只解析上一次找到码的区域
+     */
+    public boolean isRoiTrackingEnabled() {
+        return mRoiTrackingEnabled;
+    }
+
+    /**
+     * 设置是否跟踪码所在的区域，开启后识别成功或找到特征点时，之后的帧只解析该区域附近，
+     * 连续几帧未找到时回到完整的扫描框；多码解析时不跟踪
+     *
+     * @param enabled true 跟踪，false 每帧解析完整的扫描框
+     */
+    public void setRoiTrackingEnabled(boolean enabled) {
+        mRoiTrackingEnabled = enabled;
+    }
+
+    /**
+     * @return 扫描框较大时是否先解析缩小后的图像
+     */
+    public boolean isPyramidEnabled() {
+        return mPyramidEnabled;
+    }
+
+    /**
+     * 设置扫描框较大时是否先解析缩小2倍或4倍的图像，失败后再解析原分辨率图像，
+     * 用于高分辨率预览下近距离的大码
+     *
+     * @param enabled true 先解析缩小后的图像，false 只解析原分辨率图像
+     */
+    public void setPyramidEnabled(boolean enabled) {
+        mPyramidEnabled = enabled;
+    }
+
+    /**
+     * @return 解析失败时依次尝试的预处理
+     */
+    public PreprocessStage[] getPreprocessStages() {
+        return mPreprocessStages.clone();
+    }
+
+    PreprocessStage[] preprocessStages() {
+        return mPreprocessStages;
+    }
+
+    /**
+     * 设置提升解析档位后，原图像解析失败时的预处理梯度，每帧按顺序只尝试其中一种，
+     * 用于褪色的热敏标签等低对比度的码
+     *
+     * @param stages 预处理方式，默认不预处理
+     */
+    public void setPreprocessStages(PreprocessStage... stages) {
+        mPreprocessStages = stages == null ? new PreprocessStage[0] : stages.clone();
+    }
+}
@@ -43,15 +43,35 @@ import io.hellobird.barcode.camera.CameraManager;
  */
 public class DecodeThread extends Thread {
 
+    /**
+     * 缩略图的灰度亮度数据，byte[]，每个字节一个像素
+     */
     public static final String BARCODE_BITMAP = "barcode_bitmap";
     public static final String BARCODE_SCALED_FACTOR = "barcode_scaled_factor";
+    /**
+     * 缩略图宽度
+     */
+    public static final String BARCODE_THUMBNAIL_WIDTH = "barcode_thumbnail_width";
+    /**
+     * 缩略图高度
+     */
+    public static final String BARCODE_THUMBNAIL_HEIGHT = "barcode_thumbnail_height";
 
     private final CameraManager cameraManager;
     private final Handler mainHandler;
     private final Map<DecodeHintType, Object> hints;
+    private final DecodeOptions options;
+    private final FormatStatistics statistics;
+    private final EscalationPolicy escalation;
+    private final RoiTracker roiTracker;
+    private final FrameMetrics frameMetrics;
     private Handler handler;
     private final CountDownLatch handlerInitLatch;
     private boolean callbackBitmap;
+    /**
+     * 线程编号，在解析线程池中用于区分各个解析线程
+     */
+    private final int id;
 
     public DecodeThread(
             Context context,
@@ -62,13 +82,40 @@ public class DecodeThread extends Thread {
             String characterSet,
             ResultPointCallback resultPointCallback,
             boolean callbackBitmap) {
+        this(cameraManager, mainHandler,
+                buildHints(context, decodeFormats, baseHints, characterSet, resultPointCallback),
+                new DecodeOptions(), new FormatStatistics(), new EscalationPolicy(), new RoiTracker(),
+                new FrameMetrics(), callbackBitmap, 0);
+    }
 
+    DecodeThread(CameraManager cameraManager, Handler mainHandler, Map<DecodeHintType, Object> hints,
+                 DecodeOptions options, FormatStatistics statistics, EscalationPolicy escalation,
+                 RoiTracker roiTracker, FrameMetrics frameMetrics, boolean callbackBitmap, int id) {
+        super("DecodeThread-" + id);
         this.cameraManager = cameraManager;
         this.mainHandler = mainHandler;
+        this.hints = hints;
+        this.options = options;
+        this.statistics = statistics;
+        this.escalation = escalation;
+        this.roiTracker = roiTracker;
+        this.frameMetrics = frameMetrics;
         this.callbackBitmap = callbackBitmap;
+        this.id = id;
         handlerInitLatch = new CountDownLatch(1);
+    }
+
+    /**
+     * 生成解析参数，未指定解析格式时从配置中读取
+     */
+    static Map<DecodeHintType, Object> buildHints(
+            Context context,
+            Collection<BarcodeFormat> decodeFormats,
+            Map<DecodeHintType, ?> baseHints,
+            String characterSet,
+            ResultPointCallback resultPointCallback) {
 
-        hints = new EnumMap<>(DecodeHintType.class);
+        Map<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
         if (baseHints != null) {
             hints.putAll(baseHints);
         }
@@ -102,6 +149,7 @@ public class DecodeThread extends Thread {
             hints.put(DecodeHintType.CHARACTER_SET, characterSet);
         }
         hints.put(DecodeHintType.NEED_RESULT_POINT_CALLBACK, resultPointCallback);
+        return hints;
     }
 
     public Handler getHandler() {
@@ -116,10 +164,11 @@ public class DecodeThread extends Thread {
     @Override
     public void run() {
         Looper.prepare();
-        handler = new DecodeHandler(mainHandler, cameraManager, hints, callbackBitmap);
+        handler = new DecodeHandler(mainHandler, cameraManager, hints, options, statistics, escalation,
+                roiTracker, frameMetrics, callbackBitmap, id);
         handlerInitLatch.countDown();
         Looper.loop();
-        Log.d("DecodeThread", "DecodeThread quit");
+        Log.d("DecodeThread", getName() + " quit");
     }
 
 }
@@ -0,0 +1,431 @@
+package io.hellobird.barcode.decode;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Message;
+import android.util.Log;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.ResultPointCallback;
+
+import java.util.Collection;
+import java.util.Map;
+
+import io.hellobird.barcode.camera.CameraManager;
+
+/*******************************************************************
+ * DecodeThreadPool.java  2026-10-18
+ * <P>
+ * 解析线程池<br/>
+ * 持有多个 {@link DecodeThread}，每个线程拥有各自的解析器，
+ * 相机帧经 {@link FrameScheduler} 只保留最新的一帧，分发给空闲的解析线程，
+ * 任意线程解析成功后本轮的其它结果会被丢弃<br/>
+ * 本类本身是运行在创建线程（主线程）上的Handler，所有调度状态只在该线程中读写<br/>
+ * </p>
+ *
+ * @author:zhoupeng
+ *
+ ******************************************************************/
+public final class DecodeThreadPool extends Handler {
+
+    private static final String TAG = DecodeThreadPool.class.getSimpleName();
+
+    /**
+     * 最多使用的解析线程数，预览帧率有限，过多的线程并不能提高识别速度
+     */
+    private static final int MAX_THREAD_COUNT = 4;
+
+    /**
+     * 默认最大帧龄，单位ms
+     */
+    public static final long DEFAULT_MAX_FRAME_AGE = FrameScheduler.DEFAULT_MAX_FRAME_AGE;
+
+    /**
+     * 相机管理类
+     */
+    private final CameraManager mCameraManager;
+
+    /**
+     * 接收解析成功结果的handler
+     */
+    private final Handler mMainHandler;
+
+    /**
+     * 解析线程
+     */
+    private final DecodeThread[] mThreads;
+
+    /**
+     * 各解析线程是否正在解析
+     */
+    private final boolean[] mBusy;
+
+    /**
+     * 各解析线程当前帧所属的解析轮次
+     */
+    private final int[] mThreadSession;
+
+    /**
+     * 当前解析轮次，每次重新开始解析时递增，用于丢弃上一轮的过期结果
+     */
+    private int mSession;
+
+    /**
+     * 本轮是否仍在解析
+     */
+    private boolean mDecoding;
+
+    /**
+     * 是否连续解析，解析成功后不结束本轮，继续解析后续的帧
+     */
+    private boolean mContinuous;
+
+    /**
+     * 解析选项，所有解析线程共享
+     */
+    private final DecodeOptions mOptions = new DecodeOptions();
+
+    /**
+     * 各格式识别次数，所有解析线程共享，用于优先尝试最常出现的格式
+     */
+    private final FormatStatistics mStatistics = new FormatStatistics();
+
+    /**
+     * 解析档位策略，连续解析失败后提升档位
+     */
+    private final EscalationPolicy mEscalation = new EscalationPolicy();
+
+    /**
+     * 码所在区域的跟踪，所有解析线程共享
+     */
+    private final RoiTracker mRoiTracker = new RoiTracker();
+
+    /**
+     * 各阶段耗时与计数统计
+     */
+    private final DecodeMetrics mMetrics;
+
+    /**
+     * 帧调度，只保留最新一帧
+     */
+    private final FrameScheduler mScheduler;
+
+    /**
+     * 相似帧过滤
+     */
+    private final SimilarityGate mSimilarityGate;
+
+    /**
+     * 运动过滤
+     */
+    private final MotionGate mMotionGate;
+
+    /**
+     * @param context             上下文
+     * @param cameraManager       相机管理
+     * @param mainHandler         接收解析成功结果的handler
+     * @param decodeFormats       解析类型
+     * @param baseHints           基础解析参数
+     * @param characterSet        字符集
+     * @param resultPointCallback 特征点回调
+     * @param callbackBitmap      是否回传bitmap
+     * @param threadCount         解析线程数，小于等于0时使用默认值
+     */
+    public DecodeThreadPool(
+            Context context,
+            CameraManager cameraManager,
+            Handler mainHandler,
+            Collection<BarcodeFormat> decodeFormats,
+            Map<DecodeHintType, ?> baseHints,
+            String characterSet,
+            ResultPointCallback resultPointCallback,
+            boolean callbackBitmap,
+            int threadCount) {
+        mCameraManager = cameraManager;
+        mMainHandler = mainHandler;
+        mScheduler = new FrameScheduler(cameraManager);
+        if (threadCount <= 0) {
+            threadCount = getDefaultThreadCount();
+        }
+        // The prefs can't change while the threads are running, so pick them up once here.
+        Map<DecodeHintType, Object> hints = DecodeThread.buildHints(
+                context, decodeFormats, baseHints, characterSet, resultPointCallback);
+        mSimilarityGate = new SimilarityGate(threadCount);
+        mMotionGate = new MotionGate(context.getApplicationContext());
+        mMetrics = new DecodeMetrics(threadCount);
+        mThreads = new DecodeThread[threadCount];
+        mBusy = new boolean[threadCount];
+        mThreadSession = new int[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            mThreads[i] = new DecodeThread(cameraManager, this, hints, mOptions, mStatistics, mEscalation,
+                    mRoiTracker, mMetrics.getFrame(i), callbackBitmap, i);
+        }
+    }
+
+    /**
+     * 默认线程数，为UI与相机预留一个核心
+     *
+     * @return 默认解析线程数
+     */
+    public static int getDefaultThreadCount() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        return Math.max(1, Math.min(cores - 1, MAX_THREAD_COUNT));
+    }
+
+    /**
+     * @return 解析线程数
+     */
+    public int getThreadCount() {
+        return mThreads.length;
+    }
+
+    /**
+     * @return 解析选项，修改后在下一帧生效
+     */
+    public DecodeOptions getOptions() {
+        return mOptions;
+    }
+
+    /**
+     * @return 本次扫描中各格式的识别次数
+     */
+    public FormatStatistics getFormatStatistics() {
+        return mStatistics;
+    }
+
+    /**
+     * @return 本次扫描中各解析档位的解析次数与耗时
+     */
+    public TierStatistics getTierStatistics() {
+        return mEscalation.getStatistics();
+    }
+
+    /**
+     * @return 当前解析档位
+     */
+    public DecodeTier getDecodeTier() {
+        return mEscalation.getTier();
+    }
+
+    /**
+     * 设置是否连续解析，开启后解析成功不会结束本轮解析，每个结果都会回传
+     *
+     * @param continuous true 连续解析，false 解析成功后停止
+     */
+    public void setContinuous(boolean continuous) {
+        mContinuous = continuous;
+    }
+
+    /**
+     * 设置每帧解析结束后的耗时回调
+     *
+     * @param listener 在主线程中回调，为null时取消
+     */
+    public void setMetricsListener(DecodeMetrics.Listener listener) {
+        mMetrics.setListener(listener);
+    }
+
+    /**
+     * @return 当前的帧计数与各阶段耗时分位数
+     */
+    public DecodeMetrics.MetricsSnapshot getMetricsSnapshot() {
+        return mMetrics.snapshot(getReceivedFrameCount(), getDroppedFrameCount(),
+                getSkippedFrameCount(), getProcessedFrameCount());
+    }
+
+    /**
+     * 设置最大帧龄，等待时间超过该值的帧将不再解析
+     *
+     * @param maxFrameAge 最大帧龄，单位ms，默认为 {@link #DEFAULT_MAX_FRAME_AGE}，小于等于0时不限制
+     */
+    public void setMaxFrameAge(long maxFrameAge) {
+        mScheduler.setMaxFrameAge(maxFrameAge);
+    }
+
+    /**
+     * @return 收到的相机帧数
+     */
+    public int getReceivedFrameCount() {
+        return mScheduler.getReceivedCount();
+    }
+
+    /**
+     * @return 因有更新的帧或超时而未解析的帧数
+     */
+    public int getDroppedFrameCount() {
+        return mScheduler.getDroppedCount();
+    }
+
+    /**
+     * @return 交给解析线程的帧数
+     */
+    public int getProcessedFrameCount() {
+        return mScheduler.getProcessedCount();
+    }
+
+    /**
+     * @return 因与上一次解析失败的帧相同或设备快速移动而跳过的帧数
+     */
+    public int getSkippedFrameCount() {
+        return mScheduler.getSkippedCount();
+    }
+
+    /**
+     * 启动所有解析线程
+     */
+    public void start() {
+        for (DecodeThread thread : mThreads) {
+            thread.start();
+        }
+    }
+
+    /**
+     * 开始新一轮解析，上一轮中仍在解析的帧结果将被丢弃
+     */
+    public void restartDecode() {
+        mSession++;
+        mDecoding = true;
+        mScheduler.clear();
+        mSimilarityGate.reset();
+        mEscalation.reset();
+        mRoiTracker.reset();
+        if (mOptions.isMotionGateEnabled()) {
+            mMotionGate.start();
+        } else {
+            mMotionGate.stop();
+        }
+        // 持续接收相机帧，由调度器决定解析哪一帧
+        mCameraManager.setPreviewFrameHandler(this, DecodeHandler.Msg.decode);
+    }
+
+    /**
+     * 停止所有解析线程
+     */
+    public void quit() {
+        mDecoding = false;
+        mScheduler.clear();
+        mMotionGate.stop();
+        Log.d(TAG, "Decode metrics: " + getMetricsSnapshot());
+        Log.d(TAG, "Decode tiers: " + getTierStatistics());
+        for (DecodeThread thread : mThreads) {
+            if (thread.isAlive()) {
+                Message.obtain(thread.getHandler(), DecodeHandler.Msg.quit).sendToTarget();
+            }
+        }
+        for (DecodeThread thread : mThreads) {
+            try {
+                // Wait at most half a second; should be enough time, and onPause() will timeout quickly
+                thread.join(500L);
+            } catch (InterruptedException e) {
+                // continue
+            }
+        }
+        removeCallbacksAndMessages(null);
+    }
+
+    @Override
+    public void handleMessage(Message msg) {
+        switch (msg.what) {
+            case DecodeHandler.Msg.decode: // 相机返回一帧
+                mMetrics.onFrameArrived(System.nanoTime());
+                if (mDecoding) {
+                    mScheduler.offer(msg);
+                    dispatchFrame();
+                } else {
+                    mCameraManager.releasePreviewFrame((byte[]) msg.obj);
+                }
+                break;
+            case DecodeHandler.Msg.decode_succeeded: // 解析成功
+            case DecodeHandler.Msg.decode_succeeded_multiple: // 多码解析成功
+                if (onThreadFinished(msg.arg1)) {
+                    mMetrics.onFrameFinished(msg.arg1, System.nanoTime());
+                    if (!mContinuous) {
+                        // 第一个成功的结果结束本轮解析，其它线程的结果将被忽略
+                        mDecoding = false;
+                        mScheduler.clear();
+                    }
+                    mEscalation.reset();
+                    Message message = Message.obtain(mMainHandler, msg.what, msg.obj);
+                    message.setData(msg.peekData());
+                    message.sendToTarget();
+                }
+                // 连续解析时继续解析等待中的最新一帧
+                dispatchFrame();
+                break;
+            case DecodeHandler.Msg.decode_failed: // 解析失败，线程空闲后解析等待中的最新一帧
+                if (onThreadFinished(msg.arg1)) {
+                    mMetrics.onFrameFinished(msg.arg1, System.nanoTime());
+                    if (msg.arg2 != 0) {
+                        // 模糊而跳过的帧不记录特征，特征不反映清晰度，否则对焦后的清晰画面会被当作相同画面跳过
+                        mSimilarityGate.onFailed(msg.arg1);
+                        onDecodeFailed();
+                    }
+                }
+                dispatchFrame();
+                break;
+        }
+    }
+
+    /**
+     * 将等待中的最新一帧交给空闲的解析线程
+     */
+    private void dispatchFrame() {
+        int index = findIdleThread();
+        if (!mDecoding || index < 0 || !mScheduler.hasFreshFrame()) {
+            return;
+        }
+        if (mMotionGate.isMoving()) {
+            mScheduler.skip();
+            return;
+        }
+        boolean similarityGate = mOptions.isSimilarityGateEnabled();
+        if (similarityGate && mSimilarityGate.isSimilarToFailed(
+                mScheduler.peekData(), mScheduler.peekWidth(), mScheduler.peekHeight())) {
+            mScheduler.skip();
+            // 与失败帧相同的画面在当前档位同样会失败，计入连续失败次数，设备静止时也能提升档位
+            onDecodeFailed();
+            return;
+        }
+        // 需在发送前重置，发送后该帧的耗时记录归解析线程写入
+        mMetrics.onFrameDispatched(index);
+        if (mScheduler.dispatchTo(mThreads[index].getHandler(), DecodeHandler.Msg.decode)) {
+            mBusy[index] = true;
+            mThreadSession[index] = mSession;
+            if (similarityGate) {
+                mSimilarityGate.onDispatched(index);
+            }
+        }
+    }
+
+    /**
+     * 记录一帧解析失败，按连续失败次数提升解析档位
+     */
+    private void onDecodeFailed() {
+        if (mEscalation.onFailed(mOptions.getEscalationThreshold())) {
+            // 档位改变后，之前解析失败的画面可能可以识别
+            Log.d(TAG, "Decode tier changed to " + mEscalation.getTier());
+            mSimilarityGate.reset();
+        }
+    }
+
+    /**
+     * 标记线程空闲
+     *
+     * @param index 线程编号
+     * @return 该结果是否属于当前仍在进行的解析轮次
+     */
+    private boolean onThreadFinished(int index) {
+        mBusy[index] = false;
+        return mDecoding && mThreadSession[index] == mSession;
+    }
+
+    private int findIdleThread() {
+        for (int i = 0; i < mBusy.length; i++) {
+            if (!mBusy[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
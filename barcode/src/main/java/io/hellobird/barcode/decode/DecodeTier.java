@@ -0,0 +1,27 @@
+package io.hellobird.barcode.decode;
+
+/*******************************************************************
+ * DecodeTier.java  2026-10-18
+ * <P>
+ * 解析档位<br/>
+ * 默认使用最快的档位，连续解析失败后逐级提升，识别成功后回到最快的档位<br/>
+ * </p>
+ *
+ * @author:zhoupeng
+ *
+ ******************************************************************/
+public enum DecodeTier {
+
+    /**
+     * 扫描框内图像，按 {@link DecodeOptions} 中的二值化策略解析
+     */
+    FAST,
+    /**
+     * 扫描框内图像，开启 {@link com.google.zxing.DecodeHintType#TRY_HARDER} 并依次尝试两种二值化方式
+     */
+    TRY_HARDER,
+    /**
+     * 在 TRY_HARDER 的基础上扩大扫描框，识别未完全对准扫描框的码
+     */
+    WIDE
+}
@@ -1,35 +1,40 @@
 package io.hellobird.barcode.decode;
 
+import android.content.ContentResolver;
 import android.graphics.Bitmap;
-import android.graphics.Canvas;
-import android.graphics.ColorMatrix;
-import android.graphics.ColorMatrixColorFilter;
-import android.graphics.Paint;
+import android.net.Uri;
 import android.text.TextUtils;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
 
 import com.google.zxing.BarcodeFormat;
-import com.google.zxing.BinaryBitmap;
 import com.google.zxing.DecodeHintType;
 import com.google.zxing.LuminanceSource;
-import com.google.zxing.MultiFormatReader;
-import com.google.zxing.RGBLuminanceSource;
 import com.google.zxing.ReaderException;
 import com.google.zxing.Result;
-import com.google.zxing.common.HybridBinarizer;
 
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
 
 /*******************************************************************
  * Decoder.java  2019-11-29
  * <P>
  * 解析图片中的code<br/>
- * <br/>
+ * 线程安全，每个线程首次解析时创建各自的解析器，之后在该线程中复用；
+ * 相同的解析格式与字符集可通过 {@link #getShared(Collection, String)} 共享同一个实例，
+ * 共享实例的配置不可修改，需要不同配置时自行创建实例<br/>
  * </p>
  *
  * @author:zhoupeng
@@ -43,16 +48,88 @@ public class Decoder {
 
 
     /**
-     * 实际的解析类
+     * 按解析格式与字符集共享的实例
      */
-    private final MultiFormatReader mMultiFormatReader;
+    private static final ConcurrentHashMap<List<Object>, Decoder> sSharedDecoders = new ConcurrentHashMap<>();
+
+    /**
+     * 解析参数
+     */
+    private final Map<DecodeHintType, Object> mHints;
+
+    /**
+     * 开启TRY_HARDER的解析参数
+     */
+    private final Map<DecodeHintType, Object> mHardHints;
+
+    /**
+     * 识别次数统计，各线程共享，优先尝试之前识别到的格式
+     */
+    private final FormatStatistics mStatistics = new FormatStatistics();
+
+    /**
+     * 是否为 {@link #getShared(Collection, String)} 返回的共享实例，共享实例的配置不可修改
+     */
+    private final boolean mShared;
+
+    /**
+     * 快速解析与TRY_HARDER解析均失败后依次尝试的预处理
+     */
+    private volatile PreprocessStage[] mPreprocessStages = PreprocessStage.values();
+
+    /**
+     * 读取图片时复用Bitmap的缓存池，为null时不复用
+     */
+    private volatile BitmapPool mBitmapPool = BitmapPool.getDefault();
+
+    /**
+     * 读取图片时使用的格式，RGB_565占用的内存为ARGB_8888的一半，对解析没有影响
+     */
+    private volatile Bitmap.Config mBitmapConfig = Bitmap.Config.RGB_565;
+
+    /**
+     * 每个线程各自的解析器，首次在该线程中解析时创建，之后复用
+     */
+    private final ThreadLocal<Readers> mReaders = new ThreadLocal<Readers>() {
+        @Override
+        protected Readers initialValue() {
+            return new Readers(mHints, mHardHints, mStatistics);
+        }
+    };
+
+    /**
+     * 获取共享的解析器，相同的解析格式与字符集返回同一个实例
+     *
+     * @param decodeFormats 解析格式
+     * @param charset       字符集，可为null
+     * @return 线程安全的解析器，其配置不可修改，调用setter会抛出 {@link IllegalStateException}
+     */
+    public static Decoder getShared(Collection<BarcodeFormat> decodeFormats, String charset) {
+        if (decodeFormats == null || decodeFormats.isEmpty()) {
+            throw new IllegalArgumentException("请传入指定的解析格式");
+        }
+        List<Object> key = Arrays.<Object>asList(EnumSet.copyOf(decodeFormats), charset);
+        Decoder decoder = sSharedDecoders.get(key);
+        if (decoder == null) {
+            Decoder created = new Decoder(decodeFormats, charset, true);
+            decoder = sSharedDecoders.putIfAbsent(key, created);
+            if (decoder == null) {
+                decoder = created;
+            }
+        }
+        return decoder;
+    }
 
     public Decoder(BarcodeFormat... formats) {
         this(Arrays.asList(formats), null);
     }
 
     public Decoder(Collection<BarcodeFormat> decodeFormats, String charset) {
-        mMultiFormatReader = new MultiFormatReader();
+        this(decodeFormats, charset, false);
+    }
+
+    private Decoder(Collection<BarcodeFormat> decodeFormats, String charset, boolean shared) {
+        mShared = shared;
         Map<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
         // 如果传入的支持格式为空，则默认添加
         if (decodeFormats == null || decodeFormats.isEmpty()) {
@@ -62,30 +139,100 @@ public class Decoder {
         if (charset != null) {
             hints.put(DecodeHintType.CHARACTER_SET, charset);
         }
-        mMultiFormatReader.setHints(hints);
+        mHints = Collections.unmodifiableMap(hints);
+        Map<DecodeHintType, Object> hardHints = new EnumMap<>(hints);
+        hardHints.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
+        mHardHints = Collections.unmodifiableMap(hardHints);
     }
 
     /**
-     * 解析图像源中的码
+     * 解析图像源中的码，快速解析失败后再开启TRY_HARDER解析
      *
      * @param source 图像源
      * @return 解析结果
      */
     public Result decode(LuminanceSource source) {
+        try {
+            return decode(source, 0);
+        } catch (TimeoutException e) {
+            // 未设置截止时间，不会超时
+            return null;
+        }
+    }
+
+    /**
+     * 解析图像源中的码，每次尝试前检查是否已超过截止时间
+     *
+     * @param source   图像源
+     * @param deadline 截止时间，{@link System#nanoTime()}，为0时不限制
+     * @return 解析结果
+     * @throws TimeoutException 尝试之前已超过截止时间
+     */
+    Result decode(LuminanceSource source, long deadline) throws TimeoutException {
         Result rawResult = null;
         if (source != null) {
-            BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(source));
+            Readers readers = mReaders.get();
+            readers.mReader.onFrame();
+            readers.mHardReader.onFrame();
+            checkDeadline(deadline);
             try {
-                rawResult = mMultiFormatReader.decodeWithState(bitmap);
+                rawResult = readers.mBinarizer.decode(source, readers.mReader, BinarizerMode.TIERED);
             } catch (ReaderException re) {
-                // continue
-            } finally {
-                mMultiFormatReader.reset();
+                checkDeadline(deadline);
+                try {
+                    rawResult = readers.mBinarizer.decode(source, readers.mHardReader, BinarizerMode.TIERED);
+                } catch (ReaderException hardRe) {
+                    rawResult = decodePreprocessed(source, readers, deadline);
+                }
             }
         }
         return rawResult;
     }
 
+    /**
+     * 按预处理梯度依次处理图像后重新解析
+     *
+     * @param source   原图像
+     * @param readers  本线程的解析器
+     * @param deadline 截止时间，{@link System#nanoTime()}，为0时不限制
+     * @return 解析结果，所有预处理均失败时为null
+     * @throws TimeoutException 尝试之前已超过截止时间
+     */
+    private Result decodePreprocessed(LuminanceSource source, Readers readers, long deadline)
+            throws TimeoutException {
+        for (PreprocessStage stage : mPreprocessStages) {
+            checkDeadline(deadline);
+            try {
+                return readers.mBinarizer.decode(readers.mPreprocessor.apply(stage, source),
+                        readers.mHardReader, BinarizerMode.TIERED);
+            } catch (ReaderException re) {
+                // continue
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 设置解析失败后依次尝试的预处理，默认依次尝试所有预处理方式
+     *
+     * @param stages 预处理方式，为空时不预处理
+     * @throws IllegalStateException 共享实例不可修改
+     */
+    public void setPreprocessStages(PreprocessStage... stages) {
+        checkMutable();
+        mPreprocessStages = stages == null ? new PreprocessStage[0] : stages.clone();
+    }
+
+    /**
+     * @param deadline 截止时间，{@link System#nanoTime()}，为0时不限制
+     * @throws TimeoutException 已超过截止时间
+     */
+    static void checkDeadline(long deadline) throws TimeoutException {
+        if (deadline != 0 && System.nanoTime() - deadline > 0) {
+            throw new TimeoutException();
+        }
+    }
+
     /**
      * 解析bitmap中的码
      *
@@ -101,17 +248,39 @@ public class Decoder {
     }
 
     /**
-     * bitmap转换为zxing可识别的source
+     * 解析以存储方向读取的bitmap中的码，按EXIF方向摆正后解析
      *
-     * @param bitmap bitmap
+     * @param bitmap      bitmap
+     * @param orientation EXIF方向（1~8），如 ExifInterface.TAG_ORIENTATION 的值
+     * @return 解析结果
+     */
+    public Result decodeBitmap(Bitmap bitmap, int orientation) {
+        if (bitmap == null) {
+            Log.w(TAG, "解析失败，Bitmap 不能为空");
+            return null;
+        }
+        return decode(buildSourceFromBitmap(bitmap, orientation));
+    }
+
+    /**
+     * bitmap转换为zxing可识别的source，逐行读取像素，不复制整张图片
+     *
+     * @param bitmap bitmap，解析结束前不能回收
      * @return source
      */
-    private RGBLuminanceSource buildSourceFromBitmap(@NonNull Bitmap bitmap) {
-        int width = bitmap.getWidth();
-        int height = bitmap.getHeight();
-        int[] pixels = new int[width * height];
-        bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
-        return new RGBLuminanceSource(bitmap.getWidth(), bitmap.getHeight(), pixels);
+    LuminanceSource buildSourceFromBitmap(@NonNull Bitmap bitmap) {
+        return new BitmapLuminanceSource(bitmap);
+    }
+
+    /**
+     * bitmap转换为按EXIF方向摆正的source，只改变坐标映射，不旋转像素
+     *
+     * @param bitmap      以存储方向读取的bitmap，解析结束前不能回收
+     * @param orientation EXIF方向
+     * @return source
+     */
+    LuminanceSource buildSourceFromBitmap(@NonNull Bitmap bitmap, int orientation) {
+        return new BitmapLuminanceSource(bitmap, orientation);
     }
 
     /**
@@ -128,59 +297,218 @@ public class Decoder {
             return null;
         }
 
-        Bitmap bitmap = ImageResizer.decodeSampledBitmapFromFile(filePath, width, height);
-        if (bitmap != null) {
-            decodeBitmap(bitmap);
-        } else {
+        return decodeImage(ImageSource.fromFile(filePath), width, height);
+    }
+
+    /**
+     * 从Uri中解析二维码，直接通过ContentResolver读取，不需要转换为文件路径<br/>
+     * 读取云端图片可能较慢，应在后台线程中调用
+     *
+     * @param resolver 用于打开Uri
+     * @param uri      图片Uri
+     * @param width    最大宽度，防止读取为bitmap后oom
+     * @param height   最大高度，防止读取为Bitmap后oom
+     * @return 解析结果
+     */
+    public Result decodeUri(ContentResolver resolver, Uri uri, int width, int height) {
+        if (resolver == null || uri == null) {
+            Log.w(TAG, "解析失败，uri 不能为空");
+            return null;
+        }
+        return decodeImage(ImageSource.fromUri(resolver, uri), width, height);
+    }
+
+    /**
+     * 从文件描述符中解析二维码
+     *
+     * @param descriptor 可定位的文件描述符，由调用方关闭
+     * @param width      最大宽度，防止读取为bitmap后oom
+     * @param height     最大高度，防止读取为Bitmap后oom
+     * @return 解析结果
+     */
+    public Result decodeFileDescriptor(FileDescriptor descriptor, int width, int height) {
+        if (descriptor == null) {
+            Log.w(TAG, "解析失败，descriptor 不能为空");
+            return null;
+        }
+        return decodeImage(ImageSource.fromFileDescriptor(descriptor), width, height);
+    }
+
+    /**
+     * 从输入流中解析二维码
+     *
+     * @param stream 图片输入流，解析后关闭
+     * @param width  最大宽度，防止读取为bitmap后oom
+     * @param height 最大高度，防止读取为Bitmap后oom
+     * @return 解析结果
+     */
+    public Result decodeStream(InputStream stream, int width, int height) {
+        if (stream == null) {
+            Log.w(TAG, "解析失败，stream 不能为空");
+            return null;
+        }
+        return decodeImage(ImageSource.fromStream(stream), width, height);
+    }
+
+    /**
+     * 从内存中的编码图片数据解析二维码
+     *
+     * @param buffer 编码后的图片数据，读取position到limit之间的部分，不改变其位置
+     * @param width  最大宽度，防止读取为bitmap后oom
+     * @param height 最大高度，防止读取为Bitmap后oom
+     * @return 解析结果
+     */
+    public Result decodeByteBuffer(ByteBuffer buffer, int width, int height) {
+        if (buffer == null || !buffer.hasRemaining()) {
+            Log.w(TAG, "解析失败，buffer 不能为空");
+            return null;
+        }
+        return decodeImage(ImageSource.fromByteBuffer(buffer), width, height);
+    }
+
+    /**
+     * 采样读取图片并解析，读取使用的Bitmap解析后归还缓存池
+     *
+     * @param source 图片来源
+     * @param width  最大宽度
+     * @param height 最大高度
+     * @return 解析结果，读取失败时为null
+     */
+    private Result decodeImage(ImageSource source, int width, int height) {
+        BitmapPool pool = mBitmapPool;
+        Bitmap bitmap;
+        try {
+            bitmap = source.load(width, height, pool, mBitmapConfig);
+        } catch (IOException e) {
+            Log.w(TAG, "读取图片失败", e);
+            return null;
+        }
+        if (bitmap == null) {
             Log.w(TAG, "图片不能为空");
+            return null;
+        }
+        try {
+            // 按EXIF方向查看图像，不旋转像素，只需解析一次
+            return decode(buildSourceFromBitmap(bitmap, source.getOrientation()));
+        } finally {
+            recycleBitmap(bitmap, pool);
+        }
+    }
+
+    /**
+     * 设置读取图片时复用Bitmap的缓存池
+     *
+     * @param pool 缓存池，默认为 {@link BitmapPool#getDefault()}，为null时不复用
+     * @throws IllegalStateException 共享实例不可修改
+     */
+    public void setBitmapPool(BitmapPool pool) {
+        checkMutable();
+        mBitmapPool = pool;
+    }
+
+    BitmapPool getBitmapPool() {
+        return mBitmapPool;
+    }
+
+    /**
+     * 设置读取图片时使用的格式
+     *
+     * @param config 默认为 {@link Bitmap.Config#RGB_565}，为null时使用系统默认的ARGB_8888
+     * @throws IllegalStateException 共享实例不可修改
+     */
+    public void setBitmapConfig(Bitmap.Config config) {
+        checkMutable();
+        mBitmapConfig = config;
+    }
+
+    /**
+     * 共享实例被多个使用方同时使用，修改配置会影响其它使用方
+     */
+    private void checkMutable() {
+        if (mShared) {
+            throw new IllegalStateException("共享的解析器不可修改配置，请使用 new Decoder() 创建");
         }
-        return null;
     }
 
-    private static final ColorMatrix BLACK_WHITE = new ColorMatrix(new float[]{
-            0.33f, 0.59f, 0.11f, 0, -1,
-            0.33f, 0.59f, 0.11f, 0, -1,
-            0.33f, 0.59f, 0.11f, 0, -1,
-            0.33f, 0.59f, 0, 1, 0
-    });
+    Bitmap.Config getBitmapConfig() {
+        return mBitmapConfig;
+    }
 
-    private static final ColorMatrix DOWN_LIGHT = new ColorMatrix(new float[]{
-            1, 0, 0, 0, -110,
-            0, 1, 0, 0, -110,
-            0, 0, 1, 0, -110,
-            0, 0, 0, 1, 0
-    });
+    /**
+     * 解析结束后归还Bitmap，没有缓存池时直接回收
+     */
+    static void recycleBitmap(Bitmap bitmap, BitmapPool pool) {
+        if (pool != null) {
+            pool.put(bitmap);
+        } else {
+            bitmap.recycle();
+        }
+    }
 
-    private static final ColorMatrix UP_CONTRAST = new ColorMatrix(new float[]{
-            6f, 0, 0, 0, -255,
-            0, 6f, 0, 0, -255,
-            0, 0, 6f, 0, -255,
-            0, 0, 0, 1, 0
-    });
+    /**
+     * @return 各格式的识别次数，各线程共享
+     */
+    public FormatStatistics getFormatStatistics() {
+        return mStatistics;
+    }
 
     /**
-     * 创建高对比度图片
+     * 一个线程使用的解析器，非线程安全
+     */
+    private static final class Readers {
+        /**
+         * 实际的解析类，根据解析格式选择
+         */
+        final FormatReader mReader;
+
+        /**
+         * 开启TRY_HARDER的解析器，快速解析失败后使用
+         */
+        final FormatReader mHardReader;
+
+        /**
+         * 二值化策略，单张图片先尝试全局二值化，失败后再使用HybridBinarizer
+         */
+        final BinarizerStrategy mBinarizer = new BinarizerStrategy();
+
+        /**
+         * 亮度预处理，缓冲区在本线程中复用
+         */
+        final LuminancePreprocessor mPreprocessor = new LuminancePreprocessor();
+
+        Readers(Map<DecodeHintType, ?> hints, Map<DecodeHintType, ?> hardHints, FormatStatistics statistics) {
+            mReader = new FormatReader(hints, statistics);
+            mHardReader = new FormatReader(hardHints, statistics);
+        }
+    }
+
+    /**
+     * 创建高对比度图片，灰度化并调低亮度后按 6 * (灰度 - 110) - 255 拉伸，逐行处理，不经过Canvas
      *
-     * @param bitmap
-     * @return
+     * @param bitmap 原图
+     * @return 高对比度的灰度图片
      */
     public static Bitmap createContrastBitmap(@NonNull Bitmap bitmap) {
         int width = bitmap.getWidth();
         int height = bitmap.getHeight();
         Bitmap result = Bitmap.createBitmap(width, height, Bitmap.Config.RGB_565);
-        ColorMatrix cMatrix = new ColorMatrix();
-        // 先转成黑白
-        cMatrix.postConcat(BLACK_WHITE);
-        // 调低亮度
-        cMatrix.postConcat(DOWN_LIGHT);
-        // 调高对比度
-        cMatrix.postConcat(UP_CONTRAST);
-
-        Paint paint = new Paint();
-        paint.setColorFilter(new ColorMatrixColorFilter(cMatrix));
-
-        Canvas canvas = new Canvas(result);
-        canvas.drawBitmap(bitmap, 0, 0, paint);
+        int[] lut = new int[256];
+        for (int grey = 0; grey < 256; grey++) {
+            int value = Math.max(0, Math.min(255, 6 * (grey - 110) - 255));
+            lut[grey] = 0xFF000000 | (value * 0x00010101);
+        }
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            bitmap.getPixels(row, 0, width, 0, y, width, 1);
+            for (int x = 0; x < width; x++) {
+                int pixel = row[x];
+                // 0.33r + 0.59g + 0.11b - 1
+                int grey = ((((pixel >> 16) & 0xff) * 84 + ((pixel >> 8) & 0xff) * 151
+                        + (pixel & 0xff) * 28) >> 8) - 1;
+                row[x] = lut[Math.max(0, Math.min(255, grey))];
+            }
+            result.setPixels(row, 0, width, 0, y, width, 1);
+        }
         return result;
     }
 }
@@ -0,0 +1,76 @@
+package io.hellobird.barcode.decode;
+
+/*******************************************************************
+ * EscalationPolicy.java  2026-10-18
+ * <P>
+ * 根据连续解析失败的次数决定解析档位<br/>
+ * 每连续失败一定帧数（{@link DecodeOptions#getEscalationThreshold()}）提升一档，
+ * 最高档位之后回到最快的档位重新开始，避免长时间没有码时一直使用最慢的档位；
+ * 识别成功或重新开始解析时回到最快的档位<br/>
+ * 失败次数只在 {@link DecodeThreadPool} 所在线程中修改，档位可被解析线程读取<br/>
+ * </p>
+ *
+ * @author:zhoupeng
+ *
+ ******************************************************************/
+final class EscalationPolicy {
+
+    private static final DecodeTier[] TIERS = DecodeTier.values();
+
+    /**
+     * 各档位的解析统计
+     */
+    private final TierStatistics mStatistics = new TierStatistics();
+
+    /**
+     * 连续解析失败的帧数
+     */
+    private int mFailures;
+
+    /**
+     * 当前解析档位
+     */
+    private volatile DecodeTier mTier = DecodeTier.FAST;
+
+    /**
+     * @return 当前解析档位
+     */
+    DecodeTier getTier() {
+        return mTier;
+    }
+
+    /**
+     * @return 各档位的解析统计
+     */
+    TierStatistics getStatistics() {
+        return mStatistics;
+    }
+
+    /**
+     * 记录一帧解析失败
+     *
+     * @param threshold 连续失败多少帧后提升一档，小于等于0时不提升
+     * @return 档位是否因此改变
+     */
+    boolean onFailed(int threshold) {
+        DecodeTier tier;
+        if (threshold <= 0) {
+            mFailures = 0;
+            tier = DecodeTier.FAST;
+        } else {
+            mFailures++;
+            tier = TIERS[(mFailures / threshold) % TIERS.length];
+        }
+        boolean changed = tier != mTier;
+        mTier = tier;
+        return changed;
+    }
+
+    /**
+     * 识别成功或重新开始解析时回到最快的档位
+     */
+    void reset() {
+        mFailures = 0;
+        mTier = DecodeTier.FAST;
+    }
+}
@@ -0,0 +1,190 @@
+package io.hellobird.barcode.decode;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/*******************************************************************
+ * ExifOrientation.java  2026-10-18
+ * <P>
+ * 从JPEG文件头中读取EXIF方向<br/>
+ * 只读取APP1段中IFD0的Orientation标签，最多读取 {@link #MAX_HEADER_BYTES} 字节，
+ * 不依赖 ExifInterface，可在采样读取图片前标记输入流后读取<br/>
+ * </p>
+ *
+ * @author:zhoupeng
+ *
+ ******************************************************************/
+final class ExifOrientation {
+
+    static final int NORMAL = 1;
+    static final int FLIP_HORIZONTAL = 2;
+    static final int ROTATE_180 = 3;
+    static final int FLIP_VERTICAL = 4;
+    static final int TRANSPOSE = 5;
+    static final int ROTATE_90 = 6;
+    static final int TRANSVERSE = 7;
+    static final int ROTATE_270 = 8;
+
+    /**
+     * 读取文件头的最大字节数，EXIF位于图像数据之前，APP1段不超过64KB
+     */
+    static final int MAX_HEADER_BYTES = 256 * 1024;
+
+    private static final int TAG_ORIENTATION = 0x0112;
+
+    private ExifOrientation() {
+    }
+
+    /**
+     * @param data   编码后的图片数据
+     * @param offset 图片在数组中的起始位置
+     * @param length 图片数据长度
+     * @return EXIF方向，不是JPEG或没有方向信息时为 {@link #NORMAL}
+     */
+    static int read(byte[] data, int offset, int length) {
+        try {
+            return read(new ByteArrayInputStream(data, offset, length));
+        } catch (IOException e) {
+            return NORMAL;
+        }
+    }
+
+    /**
+     * 从当前位置读取EXIF方向，调用方需自行标记并重置输入流<br/>
+     * 最多读取 {@link #MAX_HEADER_BYTES} 字节，以该长度标记的输入流读取后总能重置
+     *
+     * @param in 位于图片起始位置的输入流
+     * @return EXIF方向，不是JPEG或没有方向信息时为 {@link #NORMAL}
+     * @throws IOException 读取失败
+     */
+    static int read(InputStream in) throws IOException {
+        if (readByte(in) != 0xFF || readByte(in) != 0xD8) {
+            return NORMAL;
+        }
+        // 已读取的字节数，每个段读取前确认不会超过上限
+        int consumed = 2;
+        while (consumed + 4 <= MAX_HEADER_BYTES) {
+            int marker = readByte(in);
+            if (marker != 0xFF) {
+                return NORMAL;
+            }
+            // 跳过填充字节
+            while ((marker = readByte(in)) == 0xFF) {
+                consumed++;
+                if (consumed + 4 > MAX_HEADER_BYTES) {
+                    return NORMAL;
+                }
+            }
+            // SOS之后是图像数据，EOI为文件结束，之后不会再有EXIF
+            if (marker == 0xDA || marker == 0xD9) {
+                return NORMAL;
+            }
+            int length = (readByte(in) << 8) | readByte(in);
+            if (length < 2) {
+                return NORMAL;
+            }
+            consumed += 4;
+            if (consumed + length - 2 > MAX_HEADER_BYTES) {
+                // 段超出上限，读取后输入流将无法重置
+                return NORMAL;
+            }
+            if (marker == 0xE1) {
+                byte[] segment = new byte[length - 2];
+                readFully(in, segment);
+                int orientation = parseExif(segment);
+                if (orientation != 0) {
+                    return orientation;
+                }
+            } else {
+                skipFully(in, length - 2);
+            }
+            consumed += length - 2;
+        }
+        return NORMAL;
+    }
+
+    /**
+     * @param segment APP1段的内容
+     * @return EXIF方向，不是EXIF段或没有方向信息时为0
+     */
+    private static int parseExif(byte[] segment) {
+        // "Exif\0\0"之后为TIFF头
+        if (segment.length < 14 || segment[0] != 'E' || segment[1] != 'x' || segment[2] != 'i'
+                || segment[3] != 'f' || segment[4] != 0 || segment[5] != 0) {
+            return 0;
+        }
+        int tiff = 6;
+        boolean littleEndian;
+        if (segment[tiff] == 'I' && segment[tiff + 1] == 'I') {
+            littleEndian = true;
+        } else if (segment[tiff] == 'M' && segment[tiff + 1] == 'M') {
+            littleEndian = false;
+        } else {
+            return 0;
+        }
+        long ifd = readInt(segment, tiff + 4, littleEndian);
+        // 先检查范围再转换为int，超过0x7FFFFFFF的偏移转换后为负数
+        if (ifd < 8 || ifd > segment.length - tiff - 2) {
+            return 0;
+        }
+        int entries = tiff + (int) ifd;
+        int count = readShort(segment, entries, littleEndian);
+        for (int i = 0; i < count; i++) {
+            int entry = entries + 2 + i * 12;
+            if (entry + 12 > segment.length) {
+                return 0;
+            }
+            if (readShort(segment, entry, littleEndian) == TAG_ORIENTATION) {
+                int orientation = readShort(segment, entry + 8, littleEndian);
+                return orientation >= NORMAL && orientation <= ROTATE_270 ? orientation : NORMAL;
+            }
+        }
+        return 0;
+    }
+
+    private static int readShort(byte[] data, int offset, boolean littleEndian) {
+        int first = data[offset] & 0xff;
+        int second = data[offset + 1] & 0xff;
+        return littleEndian ? (second << 8) | first : (first << 8) | second;
+    }
+
+    private static long readInt(byte[] data, int offset, boolean littleEndian) {
+        long value = 0;
+        for (int i = 0; i < 4; i++) {
+            int b = data[offset + (littleEndian ? 3 - i : i)] & 0xff;
+            value = (value << 8) | b;
+        }
+        return value;
+    }
+
+    private static int readByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new IOException("Unexpected end of image header");
+        }
+        return b;
+    }
+
+    private static void readFully(InputStream in, byte[] buffer) throws IOException {
+        int read = 0;
+        while (read < buffer.length) {
+            int count = in.read(buffer, read, buffer.length - read);
+            if (count < 0) {
+                throw new IOException("Unexpected end of image header");
+            }
+            read += count;
+        }
+    }
+
+    private static void skipFully(InputStream in, long count) throws IOException {
+        while (count > 0) {
+            long skipped = in.skip(count);
+            if (skipped <= 0) {
+                readByte(in);
+                skipped = 1;
+            }
+            count -= skipped;
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package io.hellobird.barcode.decode;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.Reader;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.aztec.AztecReader;
+import com.google.zxing.datamatrix.DataMatrixReader;
+import com.google.zxing.maxicode.MaxiCodeReader;
+import com.google.zxing.oned.MultiFormatOneDReader;
+import com.google.zxing.pdf417.PDF417Reader;
+import com.google.zxing.qrcode.QRCodeReader;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*******************************************************************
+ * FormatReader.java  2026-10-18
+ * <P>
+ * 按解析格式选择最小的解析器<br/>
+ * 只解析一种二维码或只解析一维码时直接使用对应的解析器，
+ * 不再经过 {@link MultiFormatReader} 逐个尝试不需要的解析器；
+ * 多种格式混合时按 {@link FormatStatistics} 中的识别次数排序，优先尝试最常出现的格式，
+ * 很少出现的格式只在隔帧时尝试<br/>
+ * 非线程安全，每个解析线程各自持有一个实例<br/>
+ * </p>
+ *
+ * @author:zhoupeng
+ *
+ ******************************************************************/
+final class FormatReader {
+
+    /**
+     * 一维码格式，均由 {@link MultiFormatOneDReader} 解析
+     */
+    private static final Set<BarcodeFormat> ONE_D_FORMATS = EnumSet.of(
+            BarcodeFormat.UPC_A,
+            BarcodeFormat.UPC_E,
+            BarcodeFormat.EAN_13,
+            BarcodeFormat.EAN_8,
+            BarcodeFormat.CODABAR,
+            BarcodeFormat.CODE_39,
+            BarcodeFormat.CODE_93,
+            BarcodeFormat.CODE_128,
+            BarcodeFormat.ITF,
+            BarcodeFormat.RSS_14,
+            BarcodeFormat.RSS_EXPANDED,
+            BarcodeFormat.UPC_EAN_EXTENSION);
+
+    /**
+     * 识别总次数达到该值后才开始降低少见格式的尝试频率
+     */
+    private static final int WARMUP_HITS = 5;
+
+    /**
+     * 识别次数占比低于 1/RARE_RATIO 的格式视为少见格式
+     */
+    private static final int RARE_RATIO = 10;
+
+    /**
+     * 按格式分组的解析器，默认顺序与 {@link MultiFormatReader} 一致
+     */
+    private final Reader[] mReaders;
+
+    /**
+     * 各解析器负责的格式，以 {@link BarcodeFormat#ordinal()} 表示
+     */
+    private final int[][] mFormats;
+
+    /**
+     * 本帧尝试的顺序
+     */
+    private final int[] mOrder;
+
+    /**
+     * 排序时使用的各解析器识别次数
+     */
+    private final int[] mHits;
+
+    /**
+     * 排序时的识别总次数
+     */
+    private int mTotalHits;
+
+    /**
+     * 解析参数
+     */
+    private final Map<DecodeHintType, ?> mHints;
+
+    /**
+     * 识别次数统计，为null时按默认顺序尝试
+     */
+    private final FormatStatistics mStatistics;
+
+    /**
+     * 已解析的帧数，由 {@link #onFrame()} 推进，用于少见格式的隔帧尝试
+     */
+    private int mFrameCount;
+
+    FormatReader(Map<DecodeHintType, ?> hints) {
+        this(hints, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    FormatReader(Map<DecodeHintType, ?> hints, FormatStatistics statistics) {
+        mHints = hints;
+        mStatistics = statistics;
+        Collection<BarcodeFormat> formats = hints == null ? null
+                : (Collection<BarcodeFormat>) hints.get(DecodeHintType.POSSIBLE_FORMATS);
+        List<Reader> readers = new ArrayList<>();
+        List<Set<BarcodeFormat>> groups = new ArrayList<>();
+        if (formats == null || formats.isEmpty()) {
+            readers.add(createReader(hints));
+            groups.add(EnumSet.allOf(BarcodeFormat.class));
+        } else {
+            Set<BarcodeFormat> oneD = EnumSet.noneOf(BarcodeFormat.class);
+            for (BarcodeFormat format : formats) {
+                if (ONE_D_FORMATS.contains(format)) {
+                    oneD.add(format);
+                }
+            }
+            if (!oneD.isEmpty()) {
+                readers.add(new MultiFormatOneDReader(hints));
+                groups.add(oneD);
+            }
+            for (BarcodeFormat format : formats) {
+                Reader reader = createTwoDReader(format);
+                if (reader != null) {
+                    readers.add(reader);
+                    groups.add(EnumSet.of(format));
+                }
+            }
+        }
+        mReaders = readers.toArray(new Reader[0]);
+        mFormats = new int[groups.size()][];
+        for (int i = 0; i < mFormats.length; i++) {
+            Set<BarcodeFormat> group = groups.get(i);
+            mFormats[i] = new int[group.size()];
+            int j = 0;
+            for (BarcodeFormat format : group) {
+                mFormats[i][j++] = format.ordinal();
+            }
+        }
+        mOrder = new int[mReaders.length];
+        mHits = new int[mReaders.length];
+        for (int i = 0; i < mOrder.length; i++) {
+            mOrder[i] = i;
+        }
+    }
+
+    /**
+     * 开始解析新的一帧，每帧只调用一次，
+     * 同一帧内的多次解析（不同二值化方式、反色、缩小图、预处理）按同一帧决定是否尝试少见格式
+     */
+    void onFrame() {
+        mFrameCount++;
+    }
+
+    /**
+     * 解析图像，解析结束后重置解析器状态
+     *
+     * @param bitmap 二值化图像
+     * @return 解析结果
+     * @throws ReaderException 未找到或无法解析
+     */
+    Result decode(BinaryBitmap bitmap) throws ReaderException {
+        if (mReaders.length == 1) {
+            return decode(mReaders[0], bitmap);
+        }
+        boolean skipRare = sortByHits();
+        for (int index : mOrder) {
+            if (skipRare && isRare(index) && (mFrameCount & 1) == 0) {
+                continue;
+            }
+            try {
+                Result result = decode(mReaders[index], bitmap);
+                if (mStatistics != null) {
+                    mStatistics.recordHit(result.getBarcodeFormat());
+                }
+                return result;
+            } catch (ReaderException re) {
+                // continue
+            }
+        }
+        throw NotFoundException.getNotFoundInstance();
+    }
+
+    private Result decode(Reader reader, BinaryBitmap bitmap) throws ReaderException {
+        try {
+            if (reader instanceof MultiFormatReader) {
+                // 参数已在创建时设置，不必每次重新解析参数
+                return ((MultiFormatReader) reader).decodeWithState(bitmap);
+            }
+            return reader.decode(bitmap, mHints);
+        } finally {
+            reader.reset();
+        }
+    }
+
+    /**
+     * 按识别次数从多到少排序，次数相同时保持默认顺序
+     *
+     * @return 是否已有足够的统计数据来降低少见格式的尝试频率
+     */
+    private boolean sortByHits() {
+        if (mStatistics == null) {
+            return false;
+        }
+        int total = 0;
+        for (int i = 0; i < mReaders.length; i++) {
+            int hits = 0;
+            for (int ordinal : mFormats[i]) {
+                hits += mStatistics.getHitCount(ordinal);
+            }
+            mHits[i] = hits;
+            mOrder[i] = i;
+            total += hits;
+        }
+        // 插入排序，解析器最多只有几个
+        for (int i = 1; i < mOrder.length; i++) {
+            int current = mOrder[i];
+            int j = i - 1;
+            while (j >= 0 && mHits[mOrder[j]] < mHits[current]) {
+                mOrder[j + 1] = mOrder[j];
+                j--;
+            }
+            mOrder[j + 1] = current;
+        }
+        mTotalHits = total;
+        return total >= WARMUP_HITS;
+    }
+
+    private boolean isRare(int index) {
+        return mHits[index] * RARE_RATIO < mTotalHits;
+    }
+
+    /**
+     * 根据解析格式创建最小的解析器
+     *
+     * @param hints 解析参数
+     * @return 解析器
+     */
+    @SuppressWarnings("unchecked")
+    static Reader createReader(Map<DecodeHintType, ?> hints) {
+        Collection<BarcodeFormat> formats = hints == null ? null
+                : (Collection<BarcodeFormat>) hints.get(DecodeHintType.POSSIBLE_FORMATS);
+        if (formats != null && !formats.isEmpty()) {
+            if (ONE_D_FORMATS.containsAll(formats)) {
+                return new MultiFormatOneDReader(hints);
+            }
+            if (formats.size() == 1) {
+                Reader reader = createTwoDReader(formats.iterator().next());
+                if (reader != null) {
+                    return reader;
+                }
+            }
+        }
+        MultiFormatReader reader = new MultiFormatReader();
+        reader.setHints(hints);
+        return reader;
+    }
+
+    /**
+     * @param format 二维码格式
+     * @return 对应的解析器，一维码返回null
+     */
+    private static Reader createTwoDReader(BarcodeFormat format) {
+        switch (format) {
+            case QR_CODE:
+                return new QRCodeReader();
+            case DATA_MATRIX:
+                return new DataMatrixReader();
+            case AZTEC:
+                return new AztecReader();
+            case PDF_417:
+                return new PDF417Reader();
+            case MAXICODE:
+                return new MaxiCodeReader();
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package io.hellobird.barcode.decode;
+
+import com.google.zxing.BarcodeFormat;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/*******************************************************************
+ * FormatStatistics.java  2026-10-18
+ * <P>
+ * 各解析格式的识别次数统计<br/>
+ * 同一次扫描中的所有解析线程共享，用于优先尝试最常出现的格式<br/>
+ * </p>
+ *
+ * @author:zhoupeng
+ *
+ ******************************************************************/
+public final class FormatStatistics {
+
+    /**
+     * 以 {@link BarcodeFormat#ordinal()} 为下标的识别次数
+     */
+    private final AtomicIntegerArray mHits = new AtomicIntegerArray(BarcodeFormat.values().length);
+
+    /**
+     * 记录一次识别成功
+     *
+     * @param format 识别到的格式
+     */
+    void recordHit(BarcodeFormat format) {
+        mHits.incrementAndGet(format.ordinal());
+    }
+
+    /**
+     * @param format 格式
+     * @return 该格式的识别次数
+     */
+    public int getHitCount(BarcodeFormat format) {
+        return mHits.get(format.ordinal());
+    }
+
+    /**
+     * @param ordinal 格式的 {@link BarcodeFormat#ordinal()}
+     * @return 该格式的识别次数
+     */
+    int getHitCount(int ordinal) {
+        return mHits.get(ordinal);
+    }
+
+    /**
+     * @return 所有格式的识别次数之和
+     */
+    public int getTotalHitCount() {
+        int total = 0;
+        for (int i = 0; i < mHits.length(); i++) {
+            total += mHits.get(i);
+        }
+        return total;
+    }
+}
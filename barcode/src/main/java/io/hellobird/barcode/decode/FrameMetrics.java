@@ -0,0 +1,122 @@
+package io.hellobird.barcode.decode;
+
+/*******************************************************************
+ * FrameMetrics.java  2026-10-18
+ * <P>
+ * 一帧解析过程中各阶段的耗时<br/>
+ * 每个解析线程复用同一个实例，在 {@link DecodeMetrics.Listener} 回调之外使用时需自行复制数据<br/>
+ * </p>
+ *
+ * @author:zhoupeng
+ *
+ ******************************************************************/
+public final class FrameMetrics {
+
+    /**
+     * 解析阶段
+     */
+    public enum Stage {
+        /**
+         * 该帧与上一帧到达的时间间隔
+         */
+        ARRIVAL_INTERVAL,
+        /**
+         * 裁剪、旋转与缩小，构建图像源
+         */
+        SOURCE,
+        /**
+         * 二值化
+         */
+        BINARIZE,
+        /**
+         * 解析器定位与解码，不含二值化
+         */
+        READ,
+        /**
+         * 解析线程回传结果到主线程收到结果
+         */
+        DISPATCH,
+        /**
+         * 解析线程处理该帧的总耗时
+         */
+        TOTAL
+    }
+
+    private final long[] mNanos = new long[Stage.values().length];
+
+    /**
+     * 是否实际进行了解析，模糊而跳过的帧为false
+     */
+    private boolean mAttempted;
+
+    /**
+     * 是否识别成功
+     */
+    private boolean mDecoded;
+
+    /**
+     * 解析线程回传结果的时间，单位ns
+     */
+    private long mPostTime;
+
+    /**
+     * @param stage 阶段
+     * @return 该阶段的耗时，单位ns
+     */
+    public long getNanos(Stage stage) {
+        return mNanos[stage.ordinal()];
+    }
+
+    /**
+     * @return 是否实际进行了解析，模糊而跳过的帧为false
+     */
+    public boolean isAttempted() {
+        return mAttempted;
+    }
+
+    /**
+     * @return 是否识别成功
+     */
+    public boolean isDecoded() {
+        return mDecoded;
+    }
+
+    /**
+     * 开始新的一帧，在分发给解析线程前调用
+     *
+     * @param arrivalInterval 该帧与上一帧到达的时间间隔，单位ns
+     */
+    void begin(long arrivalInterval) {
+        for (int i = 0; i < mNanos.length; i++) {
+            mNanos[i] = 0;
+        }
+        mNanos[Stage.ARRIVAL_INTERVAL.ordinal()] = arrivalInterval;
+        mAttempted = false;
+        mDecoded = false;
+    }
+
+    void add(Stage stage, long nanos) {
+        mNanos[stage.ordinal()] += nanos;
+    }
+
+    void set(Stage stage, long nanos) {
+        mNanos[stage.ordinal()] = nanos;
+    }
+
+    /**
+     * 解析线程回传结果前调用
+     *
+     * @param attempted 是否实际进行了解析
+     * @param decoded   是否识别成功
+     * @param now       当前时间，单位ns
+     */
+    void finish(boolean attempted, boolean decoded, long now) {
+        mAttempted = attempted;
+        mDecoded = decoded;
+        mPostTime = now;
+    }
+
+    long getPostTime() {
+        return mPostTime;
+    }
+}
@@ -0,0 +1,173 @@
+package io.hellobird.barcode.decode;
+
+import android.os.Handler;
+import android.os.Message;
+import android.os.SystemClock;
+
+import io.hellobird.barcode.camera.CameraManager;
+
+/*******************************************************************
+ * FrameScheduler.java  2026-10-18
+ * <P>
+ * 相机帧调度<br/>
+ * 只保留最新的一帧，新帧到达时旧帧直接归还给相机；
+ * 分发给解析线程时超过最大帧龄的帧会被丢弃<br/>
+ * 只在 {@link DecodeThreadPool} 所在线程中使用<br/>
+ * </p>
+ *
+ * @author:zhoupeng
+ *
+ ******************************************************************/
+final class FrameScheduler {
+
+    /**
+     * 默认最大帧龄，单位ms
+     */
+    static final long DEFAULT_MAX_FRAME_AGE = 200L;
+
+    private final CameraManager mCameraManager;
+
+    /**
+     * 最大帧龄，单位ms，小于等于0时不限制
+     */
+    private long mMaxFrameAge = DEFAULT_MAX_FRAME_AGE;
+
+    /**
+     * 等待解析的最新一帧
+     */
+    private byte[] mData;
+    private int mWidth;
+    private int mHeight;
+    /**
+     * 帧到达时间，{@link SystemClock#uptimeMillis()}
+     */
+    private long mTimestamp;
+
+    /**
+     * 收到的帧数
+     */
+    private int mReceivedCount;
+    /**
+     * 被新帧替换或超时而丢弃的帧数
+     */
+    private int mDroppedCount;
+    /**
+     * 交给解析线程的帧数
+     */
+    private int mProcessedCount;
+    /**
+     * 被过滤而未解析的帧数，如与上一次解析失败的帧几乎相同或拍摄时设备在快速移动
+     */
+    private int mSkippedCount;
+
+    FrameScheduler(CameraManager cameraManager) {
+        mCameraManager = cameraManager;
+    }
+
+    void setMaxFrameAge(long maxFrameAge) {
+        mMaxFrameAge = maxFrameAge;
+    }
+
+    /**
+     * 放入相机返回的一帧，未被解析的旧帧将被丢弃
+     *
+     * @param msg 相机帧消息，{@link Message#getWhen()} 即为帧到达时间
+     */
+    void offer(Message msg) {
+        mReceivedCount++;
+        if (mData != null) {
+            mDroppedCount++;
+            mCameraManager.releasePreviewFrame(mData);
+        }
+        mData = (byte[]) msg.obj;
+        mWidth = msg.arg1;
+        mHeight = msg.arg2;
+        mTimestamp = msg.getWhen();
+    }
+
+    /**
+     * 是否有可以解析的帧，过期的帧会在此被丢弃
+     *
+     * @return true 有等待解析的帧
+     */
+    boolean hasFreshFrame() {
+        if (mData == null) {
+            return false;
+        }
+        if (mMaxFrameAge > 0 && SystemClock.uptimeMillis() - mTimestamp > mMaxFrameAge) {
+            // 帧已过期，解析结果也不再能反映当前画面
+            clear();
+            mDroppedCount++;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 等待中的帧数据，只可读取，不可在此之外归还
+     */
+    byte[] peekData() {
+        return mData;
+    }
+
+    int peekWidth() {
+        return mWidth;
+    }
+
+    int peekHeight() {
+        return mHeight;
+    }
+
+    /**
+     * 过滤掉等待中的帧
+     */
+    void skip() {
+        if (mData != null) {
+            clear();
+            mSkippedCount++;
+        }
+    }
+
+    /**
+     * 将等待中的帧交给解析线程
+     *
+     * @param target 解析线程的handler
+     * @param what   消息类型
+     * @return 是否有帧被交给了解析线程
+     */
+    boolean dispatchTo(Handler target, int what) {
+        if (!hasFreshFrame()) {
+            return false;
+        }
+        Message.obtain(target, what, mWidth, mHeight, mData).sendToTarget();
+        mData = null;
+        mProcessedCount++;
+        return true;
+    }
+
+    /**
+     * 丢弃等待中的帧，不计入丢弃数
+     */
+    void clear() {
+        if (mData != null) {
+            mCameraManager.releasePreviewFrame(mData);
+            mData = null;
+        }
+    }
+
+    int getReceivedCount() {
+        return mReceivedCount;
+    }
+
+    int getDroppedCount() {
+        return mDroppedCount;
+    }
+
+    int getProcessedCount() {
+        return mProcessedCount;
+    }
+
+    int getSkippedCount() {
+        return mSkippedCount;
+    }
+}
@@ -21,7 +21,10 @@ import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.graphics.BitmapFactory.Options;
 
+import java.io.BufferedInputStream;
 import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.InputStream;
 
 /*******************************************************************
  * ImageResizer.java  2016年3月23日
@@ -34,6 +37,17 @@ import java.io.FileDescriptor;
  ******************************************************************/
 public class ImageResizer {
 
+    /**
+     * Buffer size used when a stream without mark support has to be wrapped
+     */
+    private static final int STREAM_BUFFER_SIZE = 16 * 1024;
+
+    /**
+     * Bytes the bounds pass may consume before the stream is reset; image headers,
+     * including EXIF blocks, fit well within this
+     */
+    private static final int STREAM_MARK_LIMIT = 1024 * 1024;
+
 
     /**
      * Decode and sample down a bitmap from resources to the requested width and height.
@@ -76,6 +90,23 @@ public class ImageResizer {
      */
     public static Bitmap decodeSampledBitmapFromFile(String filename,
                                                      int reqWidth, int reqHeight) {
+        return decodeSampledBitmapFromFile(filename, reqWidth, reqHeight, null, null);
+    }
+
+    /**
+     * Decode and sample down a bitmap from a file to the requested width and height,
+     * reusing a bitmap from the pool when possible.
+     *
+     * @param filename The full path of the file to decode
+     * @param reqWidth The requested width of the resulting bitmap
+     * @param reqHeight The requested height of the resulting bitmap
+     * @param pool The pool to borrow an inBitmap from, may be null
+     * @param config The preferred config, e.g. {@link Bitmap.Config#RGB_565} to halve memory, may be null
+     * @return A bitmap sampled down from the original with the same aspect ratio and dimensions
+     *         that are equal to or greater than the requested width and height
+     */
+    public static Bitmap decodeSampledBitmapFromFile(String filename, int reqWidth, int reqHeight,
+                                                     BitmapPool pool, Bitmap.Config config) {
 
         // First decode with inJustDecodeBounds=true to check dimensions
         final Options options = new Options();
@@ -84,12 +115,131 @@ public class ImageResizer {
 
         // Calculate inSampleSize
         options.inSampleSize = calculateInSampleSize(options, reqWidth, reqHeight);
+        if (config != null) {
+            options.inPreferredConfig = config;
+        }
 
-        // If we're running on Honeycomb or newer, try to use inBitmap
+        // Try to use inBitmap
+        addInBitmapOptions(options, pool);
 
         // Decode bitmap with inSampleSize set
         options.inJustDecodeBounds = false;
-        return BitmapFactory.decodeFile(filename, options);
+        try {
+            return BitmapFactory.decodeFile(filename, options);
+        } catch (IllegalArgumentException e) {
+            // The pooled bitmap could not be reused, decode into a new one
+            returnInBitmap(options, pool);
+            return BitmapFactory.decodeFile(filename, options);
+        }
+    }
+
+    /**
+     * Decode and sample down a bitmap from encoded image data to the requested width and height.
+     *
+     * @param data The encoded image data
+     * @param reqWidth The requested width of the resulting bitmap
+     * @param reqHeight The requested height of the resulting bitmap
+     * @return A bitmap sampled down from the original with the same aspect ratio and dimensions
+     *         that are equal to or greater than the requested width and height
+     */
+    public static Bitmap decodeSampledBitmapFromByteArray(byte[] data, int reqWidth, int reqHeight) {
+        return decodeSampledBitmapFromByteArray(data, reqWidth, reqHeight, null, null);
+    }
+
+    /**
+     * Decode and sample down a bitmap from encoded image data to the requested width and height,
+     * reusing a bitmap from the pool when possible.
+     *
+     * @param data The encoded image data
+     * @param reqWidth The requested width of the resulting bitmap
+     * @param reqHeight The requested height of the resulting bitmap
+     * @param pool The pool to borrow an inBitmap from, may be null
+     * @param config The preferred config, may be null
+     * @return A bitmap sampled down from the original with the same aspect ratio and dimensions
+     *         that are equal to or greater than the requested width and height
+     */
+    public static Bitmap decodeSampledBitmapFromByteArray(byte[] data, int reqWidth, int reqHeight,
+                                                          BitmapPool pool, Bitmap.Config config) {
+        return decodeSampledBitmapFromByteArray(data, 0, data.length, reqWidth, reqHeight, pool, config);
+    }
+
+    /**
+     * Decode and sample down a bitmap from a range of encoded image data to the requested
+     * width and height, reusing a bitmap from the pool when possible.
+     *
+     * @param data The encoded image data
+     * @param offset The offset of the image in data
+     * @param length The length of the image in data
+     * @param reqWidth The requested width of the resulting bitmap
+     * @param reqHeight The requested height of the resulting bitmap
+     * @param pool The pool to borrow an inBitmap from, may be null
+     * @param config The preferred config, may be null
+     * @return A bitmap sampled down from the original with the same aspect ratio and dimensions
+     *         that are equal to or greater than the requested width and height
+     */
+    public static Bitmap decodeSampledBitmapFromByteArray(byte[] data, int offset, int length,
+                                                          int reqWidth, int reqHeight,
+                                                          BitmapPool pool, Bitmap.Config config) {
+
+        // First decode with inJustDecodeBounds=true to check dimensions
+        final Options options = new Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(data, offset, length, options);
+
+        // Calculate inSampleSize
+        options.inSampleSize = calculateInSampleSize(options, reqWidth, reqHeight);
+        if (config != null) {
+            options.inPreferredConfig = config;
+        }
+        addInBitmapOptions(options, pool);
+
+        // Decode bitmap with inSampleSize set
+        options.inJustDecodeBounds = false;
+        try {
+            return BitmapFactory.decodeByteArray(data, offset, length, options);
+        } catch (IllegalArgumentException e) {
+            returnInBitmap(options, pool);
+            return BitmapFactory.decodeByteArray(data, offset, length, options);
+        }
+    }
+
+    /**
+     * Decode and sample down a bitmap from an input stream to the requested width and height,
+     * reusing a bitmap from the pool when possible. The stream is marked before the bounds
+     * pass and reset afterwards, so it is read only once and never copied as a whole.
+     *
+     * @param stream The stream to read from, wrapped in a buffered stream if it does not support mark
+     * @param reqWidth The requested width of the resulting bitmap
+     * @param reqHeight The requested height of the resulting bitmap
+     * @param pool The pool to borrow an inBitmap from, may be null
+     * @param config The preferred config, may be null
+     * @return A bitmap sampled down from the original with the same aspect ratio and dimensions
+     *         that are equal to or greater than the requested width and height
+     * @throws IOException If the stream can not be reset after the bounds pass
+     */
+    public static Bitmap decodeSampledBitmapFromStream(InputStream stream, int reqWidth, int reqHeight,
+                                                       BitmapPool pool, Bitmap.Config config) throws IOException {
+        InputStream in = stream.markSupported() ? stream : new BufferedInputStream(stream, STREAM_BUFFER_SIZE);
+
+        // First decode with inJustDecodeBounds=true to check dimensions
+        final Options options = new Options();
+        options.inJustDecodeBounds = true;
+        in.mark(STREAM_MARK_LIMIT);
+        BitmapFactory.decodeStream(in, null, options);
+        in.reset();
+
+        // Calculate inSampleSize
+        options.inSampleSize = calculateInSampleSize(options, reqWidth, reqHeight);
+        if (config != null) {
+            options.inPreferredConfig = config;
+        }
+        addInBitmapOptions(options, pool);
+
+        // Decode bitmap with inSampleSize set
+        // The stream can only be rewound to the bounds mark, so there is no retry without
+        // inBitmap here; the pool only hands out bitmaps the platform accepts
+        options.inJustDecodeBounds = false;
+        return BitmapFactory.decodeStream(in, null, options);
     }
 
     /**
@@ -121,6 +271,70 @@ public class ImageResizer {
         return BitmapFactory.decodeFileDescriptor(fileDescriptor, null, options);
     }
 
+    /**
+     * Decode and sample down a bitmap from a file descriptor to the requested width and height,
+     * reusing a bitmap from the pool when possible.
+     *
+     * @param fileDescriptor The file descriptor to read from
+     * @param reqWidth The requested width of the resulting bitmap
+     * @param reqHeight The requested height of the resulting bitmap
+     * @param pool The pool to borrow an inBitmap from, may be null
+     * @param config The preferred config, may be null
+     * @return A bitmap sampled down from the original with the same aspect ratio and dimensions
+     *         that are equal to or greater than the requested width and height
+     */
+    public static Bitmap decodeSampledBitmapFromDescriptor(FileDescriptor fileDescriptor, int reqWidth,
+                                                           int reqHeight, BitmapPool pool, Bitmap.Config config) {
+        final Options options = new Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFileDescriptor(fileDescriptor, null, options);
+
+        options.inSampleSize = calculateInSampleSize(options, reqWidth, reqHeight);
+        if (config != null) {
+            options.inPreferredConfig = config;
+        }
+        addInBitmapOptions(options, pool);
+
+        options.inJustDecodeBounds = false;
+        try {
+            return BitmapFactory.decodeFileDescriptor(fileDescriptor, null, options);
+        } catch (IllegalArgumentException e) {
+            returnInBitmap(options, pool);
+            return BitmapFactory.decodeFileDescriptor(fileDescriptor, null, options);
+        }
+    }
+
+    /**
+     * Borrow a reusable bitmap from the pool and set it as {@link Options#inBitmap}.
+     *
+     * @param options Options with out* params and inSampleSize already populated
+     * @param pool The pool to borrow from, may be null
+     */
+    private static void addInBitmapOptions(Options options, BitmapPool pool) {
+        // inBitmap only works with mutable bitmaps so force the decoder to
+        // return mutable bitmaps.
+        options.inMutable = true;
+        if (pool != null) {
+            Bitmap inBitmap = pool.get(options);
+            if (inBitmap != null) {
+                options.inBitmap = inBitmap;
+            }
+        }
+    }
+
+    /**
+     * Return a borrowed {@link Options#inBitmap} that the decoder rejected to the pool and clear it,
+     * so the retry decodes into a new bitmap without losing the pooled one.
+     *
+     * @param options Options whose inBitmap was rejected
+     * @param pool The pool it was borrowed from, may be null
+     */
+    private static void returnInBitmap(Options options, BitmapPool pool) {
+        if (options.inBitmap != null && pool != null) {
+            pool.put(options.inBitmap);
+        }
+        options.inBitmap = null;
+    }
 
     /**
      * Calculate an inSampleSize for use in a {@link Options} object when decoding
@@ -0,0 +1,291 @@
+package io.hellobird.barcode.decode;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/*******************************************************************
+ * ImageSource.java  2026-10-18
+ * <P>
+ * 待解析的图片来源，可以是文件、Uri、文件描述符、输入流或内存中的编码数据<br/>
+ * 只在解析时才读取图片，并按最大尺寸采样读取，防止oom<br/>
+ * </p>
+ *
+ * @author:zhoupeng
+ *
+ ******************************************************************/
+public abstract class ImageSource {
+
+    /**
+     * 包装不支持标记的输入流时的缓冲区大小
+     */
+    private static final int STREAM_BUFFER_SIZE = 16 * 1024;
+
+    /**
+     * 文件描述符不可定位（如管道）时 {@link #readDescriptorOrientation} 的返回值
+     */
+    private static final int UNSEEKABLE = -1;
+
+    /**
+     * 最近一次读取的图片的EXIF方向
+     */
+    private volatile int mOrientation = ExifOrientation.NORMAL;
+
+    /**
+     * @return 最近一次读取的图片的EXIF方向（1~8），读取前或没有方向信息时为1
+     */
+    public int getOrientation() {
+        return mOrientation;
+    }
+
+    /**
+     * 由 {@link #load} 在读取图片头时设置
+     *
+     * @param orientation EXIF方向
+     */
+    protected void setOrientation(int orientation) {
+        mOrientation = orientation;
+    }
+
+    /**
+     * 读取EXIF方向后回到原来的位置
+     *
+     * @param in 支持标记的输入流
+     * @return EXIF方向
+     * @throws IOException 无法回到原来的位置
+     */
+    static int readOrientation(InputStream in) throws IOException {
+        in.mark(ExifOrientation.MAX_HEADER_BYTES);
+        int orientation;
+        try {
+            orientation = ExifOrientation.read(in);
+        } catch (IOException e) {
+            orientation = ExifOrientation.NORMAL;
+        }
+        in.reset();
+        return orientation;
+    }
+
+    /**
+     * @return 支持标记的输入流
+     */
+    static InputStream markable(InputStream in) {
+        return in.markSupported() ? in : new BufferedInputStream(in, STREAM_BUFFER_SIZE);
+    }
+
+    /**
+     * 按最大尺寸采样读取图片，同时读取EXIF方向，见 {@link #getOrientation()}
+     *
+     * @param maxWidth  最大宽度
+     * @param maxHeight 最大高度
+     * @param pool      复用Bitmap的缓存池，可为null
+     * @param config    读取时使用的格式，可为null
+     * @return bitmap，无法解码时为null
+     * @throws IOException 读取失败
+     */
+    public abstract Bitmap load(int maxWidth, int maxHeight, BitmapPool pool, Bitmap.Config config)
+            throws IOException;
+
+    /**
+     * @param filePath 图片路径
+     * @return 文件图片来源
+     */
+    public static ImageSource fromFile(final String filePath) {
+        return new ImageSource() {
+            @Override
+            public Bitmap load(int maxWidth, int maxHeight, BitmapPool pool, Bitmap.Config config)
+                    throws IOException {
+                if (!new File(filePath).isFile()) {
+                    throw new FileNotFoundException(filePath);
+                }
+                setOrientation(readFileOrientation(filePath));
+                return ImageResizer.decodeSampledBitmapFromFile(filePath, maxWidth, maxHeight, pool, config);
+            }
+
+            @Override
+            public String toString() {
+                return filePath;
+            }
+        };
+    }
+
+    /**
+     * 文件Uri直接读取文件，其它Uri优先通过 {@link ContentResolver#openFileDescriptor(Uri, String)}
+     * 以可定位的文件描述符读取，读取失败时可换用新的Bitmap重试，也没有输入流标记长度的限制；
+     * 无法获取可定位的文件描述符时再通过 {@link ContentResolver#openInputStream(Uri)} 读取<br/>
+     * 不需要转换为文件路径，支持云端与分区存储的Uri
+     *
+     * @param resolver 用于打开Uri
+     * @param uri      图片Uri
+     * @return Uri图片来源
+     */
+    public static ImageSource fromUri(final ContentResolver resolver, final Uri uri) {
+        if (ContentResolver.SCHEME_FILE.equals(uri.getScheme()) && uri.getPath() != null) {
+            return fromFile(uri.getPath());
+        }
+        return new ImageSource() {
+            @Override
+            public Bitmap load(int maxWidth, int maxHeight, BitmapPool pool, Bitmap.Config config)
+                    throws IOException {
+                ParcelFileDescriptor descriptor;
+                try {
+                    descriptor = resolver.openFileDescriptor(uri, "r");
+                } catch (FileNotFoundException e) {
+                    // 部分ContentProvider只支持输入流
+                    descriptor = null;
+                }
+                if (descriptor != null) {
+                    try {
+                        FileDescriptor fd = descriptor.getFileDescriptor();
+                        int orientation = readDescriptorOrientation(fd);
+                        if (orientation != UNSEEKABLE) {
+                            setOrientation(orientation);
+                            return ImageResizer.decodeSampledBitmapFromDescriptor(fd, maxWidth, maxHeight, pool, config);
+                        }
+                    } finally {
+                        descriptor.close();
+                    }
+                }
+                InputStream stream = resolver.openInputStream(uri);
+                if (stream == null) {
+                    throw new FileNotFoundException(uri.toString());
+                }
+                try {
+                    stream = markable(stream);
+                    setOrientation(readOrientation(stream));
+                    return ImageResizer.decodeSampledBitmapFromStream(stream, maxWidth, maxHeight, pool, config);
+                } finally {
+                    stream.close();
+                }
+            }
+
+            @Override
+            public String toString() {
+                return uri.toString();
+            }
+        };
+    }
+
+    /**
+     * 文件描述符需可定位（普通文件），读取EXIF方向与尺寸后会回到原来的位置再读取像素；由调用方关闭
+     *
+     * @param descriptor 图片文件描述符
+     * @return 文件描述符图片来源
+     */
+    public static ImageSource fromFileDescriptor(final FileDescriptor descriptor) {
+        return new ImageSource() {
+            @Override
+            public Bitmap load(int maxWidth, int maxHeight, BitmapPool pool, Bitmap.Config config) {
+                int orientation = readDescriptorOrientation(descriptor);
+                setOrientation(orientation == UNSEEKABLE ? ExifOrientation.NORMAL : orientation);
+                return ImageResizer.decodeSampledBitmapFromDescriptor(descriptor, maxWidth, maxHeight, pool, config);
+            }
+        };
+    }
+
+    /**
+     * 输入流只能读取一次，读取后即关闭；读取尺寸时标记输入流，之后回到标记处读取像素，不复制整个输入流
+     *
+     * @param stream 图片输入流
+     * @return 输入流图片来源
+     */
+    public static ImageSource fromStream(final InputStream stream) {
+        return new ImageSource() {
+            @Override
+            public Bitmap load(int maxWidth, int maxHeight, BitmapPool pool, Bitmap.Config config)
+                    throws IOException {
+                InputStream in = markable(stream);
+                try {
+                    setOrientation(readOrientation(in));
+                    return ImageResizer.decodeSampledBitmapFromStream(in, maxWidth, maxHeight, pool, config);
+                } finally {
+                    in.close();
+                }
+            }
+        };
+    }
+
+    /**
+     * 读取position到limit之间的图片数据，不改变buffer的位置；
+     * 堆内存buffer直接读取其数组，直接内存buffer需先复制到数组中
+     *
+     * @param buffer 编码后的图片数据
+     * @return 内存图片来源
+     */
+    public static ImageSource fromByteBuffer(ByteBuffer buffer) {
+        final ByteBuffer data = buffer.duplicate();
+        return new ImageSource() {
+            @Override
+            public Bitmap load(int maxWidth, int maxHeight, BitmapPool pool, Bitmap.Config config) {
+                if (data.hasArray()) {
+                    int offset = data.arrayOffset() + data.position();
+                    setOrientation(ExifOrientation.read(data.array(), offset, data.remaining()));
+                    return ImageResizer.decodeSampledBitmapFromByteArray(data.array(),
+                            offset, data.remaining(), maxWidth, maxHeight, pool, config);
+                }
+                byte[] bytes = new byte[data.remaining()];
+                data.duplicate().get(bytes);
+                setOrientation(ExifOrientation.read(bytes, 0, bytes.length));
+                return ImageResizer.decodeSampledBitmapFromByteArray(bytes, maxWidth, maxHeight, pool, config);
+            }
+        };
+    }
+
+    /**
+     * 读取EXIF方向后回到原来的位置，不关闭文件描述符
+     *
+     * @param fd 文件描述符
+     * @return EXIF方向，读取失败时为 {@link ExifOrientation#NORMAL}；无法回到原来的位置时为 {@link #UNSEEKABLE}
+     */
+    private static int readDescriptorOrientation(FileDescriptor fd) {
+        // 关闭该输入流会关闭文件描述符，因此不关闭，由调用方关闭文件描述符
+        FileInputStream in = new FileInputStream(fd);
+        FileChannel channel = in.getChannel();
+        try {
+            long start = channel.position();
+            int orientation;
+            try {
+                orientation = ExifOrientation.read(new BufferedInputStream(in, STREAM_BUFFER_SIZE));
+            } catch (IOException e) {
+                orientation = ExifOrientation.NORMAL;
+            }
+            channel.position(start);
+            return orientation;
+        } catch (IOException e) {
+            return UNSEEKABLE;
+        }
+    }
+
+    /**
+     * @param filePath 图片路径
+     * @return EXIF方向，读取失败时为 {@link ExifOrientation#NORMAL}
+     */
+    private static int readFileOrientation(String filePath) {
+        InputStream in = null;
+        try {
+            in = new BufferedInputStream(new FileInputStream(filePath), STREAM_BUFFER_SIZE);
+            return ExifOrientation.read(in);
+        } catch (IOException e) {
+            return ExifOrientation.NORMAL;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+}
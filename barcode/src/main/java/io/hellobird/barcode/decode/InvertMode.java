@@ -0,0 +1,27 @@
+package io.hellobird.barcode.decode;
+
+/*******************************************************************
+ * InvertMode.java  2026-10-18
+ * <P>
+ * 反色码（深色背景浅色码）的识别方式<br/>
+ * 通过 {@link com.google.zxing.InvertedLuminanceSource} 在软件中反色，不依赖相机是否支持反色特效<br/>
+ * </p>
+ *
+ * @author:zhoupeng
+ *
+ ******************************************************************/
+public enum InvertMode {
+
+    /**
+     * 不识别反色码
+     */
+    OFF,
+    /**
+     * 正常帧与反色帧交替解析，识别成功后偏向成功的一方，每帧只解析一次
+     */
+    ALTERNATE,
+    /**
+     * 每帧先正常解析，失败且找到了特征点时再反色解析一次
+     */
+    ON_FINDER
+}
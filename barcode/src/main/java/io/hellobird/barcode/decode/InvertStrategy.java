@@ -0,0 +1,99 @@
+package io.hellobird.barcode.decode;
+
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+
+/*******************************************************************
+ * InvertStrategy.java  2026-10-18
+ * <P>
+ * 按 {@link InvertMode} 决定每帧以正常还是反色图像解析<br/>
+ * 通过 {@link PointCollector} 判断正常解析时是否找到了特征点<br/>
+ * 非线程安全，每个解析线程各自持有一个实例<br/>
+ * </p>
+ *
+ * @author:zhoupeng
+ *
+ ******************************************************************/
+final class InvertStrategy {
+
+    /**
+     * 识别成功后，偏向的一方在每 PREFERRED_PERIOD 帧中占 PREFERRED_PERIOD - 1 帧
+     */
+    private static final int PREFERRED_PERIOD = 4;
+
+    /**
+     * 解析器的特征点回调
+     */
+    private final PointCollector mPoints;
+
+    /**
+     * 最近一次识别成功的是否为反色图像，尚未识别成功时为null
+     */
+    private Boolean mLastInverted;
+
+    /**
+     * 已解析的帧数，由 {@link #onFrame()} 推进，同一帧内的多次解析使用相同的正反色
+     */
+    private int mFrameCount;
+
+    InvertStrategy(PointCollector points) {
+        mPoints = points;
+    }
+
+    /**
+     * 开始解析新的一帧，每帧只调用一次，
+     * 同一帧内的多次解析（缩小图、原图、预处理）按同一帧选择正常或反色图像
+     */
+    void onFrame() {
+        mFrameCount++;
+    }
+
+    /**
+     * 按策略解析图像
+     *
+     * @param source        图像源
+     * @param reader        解析器，其参数中的特征点回调应为构造时传入的 {@link PointCollector}
+     * @param binarizer     二值化策略
+     * @param binarizerMode 二值化方式
+     * @param mode          反色码识别方式
+     * @return 解析结果
+     * @throws ReaderException 未找到或无法解析
+     */
+    Result decode(LuminanceSource source, FormatReader reader, BinarizerStrategy binarizer,
+                  BinarizerMode binarizerMode, InvertMode mode) throws ReaderException {
+        mPoints.reset();
+        switch (mode) {
+            case ALTERNATE:
+                boolean inverted;
+                if (mLastInverted == null) {
+                    inverted = (mFrameCount & 1) == 1;
+                } else {
+                    // 偏向最近识别成功的一方，另一方每几帧尝试一次
+                    boolean preferred = mFrameCount % PREFERRED_PERIOD != 0;
+                    inverted = preferred == mLastInverted;
+                }
+                return decode(inverted ? source.invert() : source, inverted, reader, binarizer, binarizerMode);
+            case ON_FINDER:
+                try {
+                    return decode(source, false, reader, binarizer, binarizerMode);
+                } catch (ReaderException re) {
+                    if (mPoints.getCount() == 0) {
+                        throw re;
+                    }
+                    // 找到了特征点却无法解析，可能是反色码
+                    return decode(source.invert(), true, reader, binarizer, binarizerMode);
+                }
+            case OFF:
+            default:
+                return decode(source, false, reader, binarizer, binarizerMode);
+        }
+    }
+
+    private Result decode(LuminanceSource source, boolean inverted, FormatReader reader,
+                          BinarizerStrategy binarizer, BinarizerMode binarizerMode) throws ReaderException {
+        Result result = binarizer.decode(source, reader, binarizerMode);
+        mLastInverted = inverted;
+        return result;
+    }
+}
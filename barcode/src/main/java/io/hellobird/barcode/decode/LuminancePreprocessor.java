@@ -0,0 +1,285 @@
+package io.hellobird.barcode.decode;
+
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.PlanarYUVLuminanceSource;
+
+import java.util.Arrays;
+
+/*******************************************************************
+ * LuminancePreprocessor.java  2026-10-18
+ * <P>
+ * 按 {@link PreprocessStage} 处理亮度图像<br/>
+ * 每次处理都以原图像为输入，输出写入复用的缓冲区，
+ * 返回的图像源在下一次处理前有效<br/>
+ * 非线程安全，每个解析线程各自持有一个实例<br/>
+ * </p>
+ *
+ * @author:zhoupeng
+ *
+ ******************************************************************/
+final class LuminancePreprocessor {
+
+    /**
+     * 对比度拉伸时两端各截断的比例
+     */
+    private static final int STRETCH_CLIP_PERCENT = 1;
+
+    /**
+     * 分块均衡时短边上的块数
+     */
+    private static final int EQUALIZE_TILES = 8;
+
+    /**
+     * 分块均衡时直方图每一级最多为平均值的倍数，限制噪点被放大
+     */
+    private static final int EQUALIZE_CLIP_LIMIT = 4;
+
+    /**
+     * 分块均衡时块的最小边长，块太小时直方图没有意义
+     */
+    private static final int MIN_EQUALIZE_TILE_SIZE = 32;
+
+    /**
+     * 偏亮图像使用的伽马值，偏暗图像使用其倒数
+     */
+    private static final double GAMMA = 2.0;
+
+    /**
+     * 输入缓冲区，逐行读取原图像，避免裁剪后的图像每次 getMatrix() 都分配新数组
+     */
+    private byte[] mInput;
+
+    /**
+     * 逐行读取时的行缓冲区
+     */
+    private byte[] mRow;
+
+    /**
+     * 输出缓冲区
+     */
+    private byte[] mOutput;
+
+    private final int[] mHistogram = new int[256];
+
+    private final byte[] mLut = new byte[256];
+
+    /**
+     * 分块均衡时各块的映射表
+     */
+    private byte[] mTileLuts;
+
+    /**
+     * 处理图像
+     *
+     * @param stage  预处理方式
+     * @param source 原图像
+     * @return 处理后的图像，下一次调用前有效
+     */
+    PlanarYUVLuminanceSource apply(PreprocessStage stage, LuminanceSource source) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int size = width * height;
+        byte[] input = readMatrix(source, width, height);
+        if (mOutput == null || mOutput.length < size) {
+            mOutput = new byte[size];
+        }
+        byte[] output = mOutput;
+        switch (stage) {
+            case CONTRAST_STRETCH:
+                buildStretchLut(input, size);
+                applyLut(input, output, size);
+                break;
+            case EQUALIZE:
+                equalize(input, output, width, height);
+                break;
+            case GAMMA:
+                buildGammaLut(input, size);
+                applyLut(input, output, size);
+                break;
+            case DENOISE:
+            default:
+                medianFilter(input, output, width, height);
+                break;
+        }
+        return new PlanarYUVLuminanceSource(output, width, height, 0, 0, width, height, false);
+    }
+
+    /**
+     * 将原图像逐行读入复用的输入缓冲区
+     *
+     * @return 输入缓冲区，前 width * height 个元素为原图像
+     */
+    private byte[] readMatrix(LuminanceSource source, int width, int height) {
+        int size = width * height;
+        if (mInput == null || mInput.length < size) {
+            mInput = new byte[size];
+        }
+        if (mRow == null || mRow.length < width) {
+            mRow = new byte[width];
+        }
+        for (int y = 0; y < height; y++) {
+            byte[] row = source.getRow(y, mRow);
+            System.arraycopy(row, 0, mInput, y * width, width);
+        }
+        return mInput;
+    }
+
+    private void histogram(byte[] input, int size) {
+        int[] histogram = mHistogram;
+        Arrays.fill(histogram, 0);
+        for (int i = 0; i < size; i++) {
+            histogram[input[i] & 0xff]++;
+        }
+    }
+
+    private void buildStretchLut(byte[] input, int size) {
+        histogram(input, size);
+        int clip = size * STRETCH_CLIP_PERCENT / 100;
+        int low = 0;
+        int count = 0;
+        while (low < 255 && (count += mHistogram[low]) <= clip) {
+            low++;
+        }
+        int high = 255;
+        count = 0;
+        while (high > 0 && (count += mHistogram[high]) <= clip) {
+            high--;
+        }
+        if (high <= low) {
+            // 几乎是纯色图像，保持不变
+            low = 0;
+            high = 255;
+        }
+        int range = high - low;
+        for (int v = 0; v < 256; v++) {
+            int stretched = (v - low) * 255 / range;
+            mLut[v] = (byte) Math.max(0, Math.min(255, stretched));
+        }
+    }
+
+    private void buildGammaLut(byte[] input, int size) {
+        long sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += input[i] & 0xff;
+        }
+        // 褪色的码偏亮，压暗中间调使浅灰色的条与白色背景拉开
+        double gamma = size > 0 && sum / size >= 128 ? GAMMA : 1 / GAMMA;
+        for (int v = 0; v < 256; v++) {
+            mLut[v] = (byte) Math.round(255 * Math.pow(v / 255.0, gamma));
+        }
+    }
+
+    private void applyLut(byte[] input, byte[] output, int size) {
+        byte[] lut = mLut;
+        for (int i = 0; i < size; i++) {
+            output[i] = lut[input[i] & 0xff];
+        }
+    }
+
+    /**
+     * 分块计算限制对比度的均衡映射表，像素的输出由相邻4块的映射双线性插值得到，避免块边界
+     */
+    private void equalize(byte[] input, byte[] output, int width, int height) {
+        int tileSize = Math.max(MIN_EQUALIZE_TILE_SIZE, Math.min(width, height) / EQUALIZE_TILES);
+        int tilesX = (width + tileSize - 1) / tileSize;
+        int tilesY = (height + tileSize - 1) / tileSize;
+        int lutSize = tilesX * tilesY * 256;
+        if (mTileLuts == null || mTileLuts.length < lutSize) {
+            mTileLuts = new byte[lutSize];
+        }
+        byte[] luts = mTileLuts;
+        int[] histogram = mHistogram;
+        for (int ty = 0; ty < tilesY; ty++) {
+            int top = ty * tileSize;
+            int bottom = Math.min(height, top + tileSize);
+            for (int tx = 0; tx < tilesX; tx++) {
+                int left = tx * tileSize;
+                int right = Math.min(width, left + tileSize);
+                Arrays.fill(histogram, 0);
+                for (int y = top; y < bottom; y++) {
+                    int offset = y * width;
+                    for (int x = left; x < right; x++) {
+                        histogram[input[offset + x] & 0xff]++;
+                    }
+                }
+                int pixels = (right - left) * (bottom - top);
+                // 截断过高的直方图级，超出部分平均分配到所有级
+                int limit = Math.max(1, pixels * EQUALIZE_CLIP_LIMIT / 256);
+                int excess = 0;
+                for (int v = 0; v < 256; v++) {
+                    if (histogram[v] > limit) {
+                        excess += histogram[v] - limit;
+                        histogram[v] = limit;
+                    }
+                }
+                int base = (ty * tilesX + tx) * 256;
+                int cdf = 0;
+                for (int v = 0; v < 256; v++) {
+                    cdf += histogram[v];
+                    int redistributed = excess * (v + 1) / 256;
+                    luts[base + v] = (byte) Math.min(255, (cdf + redistributed) * 255 / pixels);
+                }
+            }
+        }
+        int half = tileSize / 2;
+        for (int y = 0; y < height; y++) {
+            // 相对于块中心的位置
+            int gy = y - half;
+            int ty0 = gy < 0 ? 0 : Math.min(tilesY - 1, gy / tileSize);
+            int ty1 = Math.min(tilesY - 1, ty0 + 1);
+            int wy = gy < 0 ? 0 : Math.min(tileSize, gy - ty0 * tileSize);
+            int offset = y * width;
+            for (int x = 0; x < width; x++) {
+                int gx = x - half;
+                int tx0 = gx < 0 ? 0 : Math.min(tilesX - 1, gx / tileSize);
+                int tx1 = Math.min(tilesX - 1, tx0 + 1);
+                int wx = gx < 0 ? 0 : Math.min(tileSize, gx - tx0 * tileSize);
+                int v = input[offset + x] & 0xff;
+                int topLeft = luts[(ty0 * tilesX + tx0) * 256 + v] & 0xff;
+                int topRight = luts[(ty0 * tilesX + tx1) * 256 + v] & 0xff;
+                int bottomLeft = luts[(ty1 * tilesX + tx0) * 256 + v] & 0xff;
+                int bottomRight = luts[(ty1 * tilesX + tx1) * 256 + v] & 0xff;
+                int topValue = topLeft * (tileSize - wx) + topRight * wx;
+                int bottomValue = bottomLeft * (tileSize - wx) + bottomRight * wx;
+                output[offset + x] = (byte) ((topValue * (tileSize - wy) + bottomValue * wy)
+                        / (tileSize * tileSize));
+            }
+        }
+    }
+
+    /**
+     * 3x3中值滤波，边缘像素保持不变
+     */
+    private static void medianFilter(byte[] input, byte[] output, int width, int height) {
+        System.arraycopy(input, 0, output, 0, width * height);
+        int[] window = new int[9];
+        for (int y = 1; y < height - 1; y++) {
+            for (int x = 1; x < width - 1; x++) {
+                int i = 0;
+                for (int dy = -1; dy <= 1; dy++) {
+                    int offset = (y + dy) * width + x;
+                    window[i++] = input[offset - 1] & 0xff;
+                    window[i++] = input[offset] & 0xff;
+                    window[i++] = input[offset + 1] & 0xff;
+                }
+                output[y * width + x] = (byte) median9(window);
+            }
+        }
+    }
+
+    /**
+     * 9个数的中值
+     */
+    private static int median9(int[] values) {
+        for (int i = 1; i < 9; i++) {
+            int value = values[i];
+            int j = i - 1;
+            while (j >= 0 && values[j] > value) {
+                values[j + 1] = values[j];
+                j--;
+            }
+            values[j + 1] = value;
+        }
+        return values[4];
+    }
+}
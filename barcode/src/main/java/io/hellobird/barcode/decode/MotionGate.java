@@ -0,0 +1,114 @@
+package io.hellobird.barcode.decode;
+
+import android.content.Context;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.os.SystemClock;
+import android.util.Log;
+
+/*******************************************************************
+ * MotionGate.java  2026-10-18
+ * <P>
+ * 运动过滤<br/>
+ * 通过陀螺仪（没有时使用加速度传感器）判断设备是否在快速移动，
+ * 快速移动时拍到的帧拖影严重，不再解析<br/>
+ * </p>
+ *
+ * @author:zhoupeng
+ *
+ ******************************************************************/
+final class MotionGate implements SensorEventListener {
+
+    private static final String TAG = MotionGate.class.getSimpleName();
+
+    /**
+     * 角速度超过该值时视为快速移动，单位rad/s
+     */
+    private static final float MAX_ANGULAR_SPEED = 1.0f;
+
+    /**
+     * 加速度与重力加速度的差值超过该值时视为快速移动，单位m/s²
+     */
+    private static final float MAX_LINEAR_ACCELERATION = 2.5f;
+
+    /**
+     * 最后一次快速移动后继续视为移动中的时间，单位ms
+     */
+    private static final long SETTLE_TIME = 150L;
+
+    private final SensorManager mSensorManager;
+
+    /**
+     * 正在监听的传感器
+     */
+    private Sensor mSensor;
+
+    /**
+     * 最后一次检测到快速移动的时间
+     */
+    private volatile long mLastMotionTime;
+
+    MotionGate(Context context) {
+        mSensorManager = (SensorManager) context.getSystemService(Context.SENSOR_SERVICE);
+    }
+
+    /**
+     * 开始监听传感器
+     */
+    void start() {
+        if (mSensor != null || mSensorManager == null) {
+            return;
+        }
+        Sensor sensor = mSensorManager.getDefaultSensor(Sensor.TYPE_GYROSCOPE);
+        if (sensor == null) {
+            sensor = mSensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER);
+        }
+        if (sensor == null) {
+            Log.w(TAG, "No gyroscope or accelerometer, motion gate disabled");
+            return;
+        }
+        mSensor = sensor;
+        mSensorManager.registerListener(this, sensor, SensorManager.SENSOR_DELAY_GAME);
+    }
+
+    /**
+     * 停止监听传感器
+     */
+    void stop() {
+        if (mSensor != null) {
+            mSensorManager.unregisterListener(this);
+            mSensor = null;
+        }
+        mLastMotionTime = 0;
+    }
+
+    /**
+     * @return 设备是否正在快速移动
+     */
+    boolean isMoving() {
+        return mSensor != null && SystemClock.uptimeMillis() - mLastMotionTime < SETTLE_TIME;
+    }
+
+    @Override
+    public void onSensorChanged(SensorEvent event) {
+        float x = event.values[0];
+        float y = event.values[1];
+        float z = event.values[2];
+        float magnitude = (float) Math.sqrt(x * x + y * y + z * z);
+        boolean moving;
+        if (event.sensor.getType() == Sensor.TYPE_GYROSCOPE) {
+            moving = magnitude > MAX_ANGULAR_SPEED;
+        } else {
+            moving = Math.abs(magnitude - SensorManager.GRAVITY_EARTH) > MAX_LINEAR_ACCELERATION;
+        }
+        if (moving) {
+            mLastMotionTime = SystemClock.uptimeMillis();
+        }
+    }
+
+    @Override
+    public void onAccuracyChanged(Sensor sensor, int accuracy) {
+    }
+}
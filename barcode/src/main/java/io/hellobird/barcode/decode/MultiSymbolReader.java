@@ -0,0 +1,130 @@
+package io.hellobird.barcode.decode;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.Reader;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.multi.GenericMultipleBarcodeReader;
+import com.google.zxing.multi.MultipleBarcodeReader;
+import com.google.zxing.multi.qrcode.QRCodeMultiReader;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*******************************************************************
+ * MultiSymbolReader.java  2026-10-18
+ * <P>
+ * 一次解析出图像中的所有码<br/>
+ * 二维码使用 {@link QRCodeMultiReader}，其它格式使用 {@link GenericMultipleBarcodeReader}
+ * 包装按格式选择的解析器，同一帧中格式与内容相同的结果只保留一个<br/>
+ * 非线程安全，每个解析线程各自持有一个实例<br/>
+ * </p>
+ *
+ * @author:zhoupeng
+ *
+ ******************************************************************/
+final class MultiSymbolReader {
+
+    /**
+     * 二维码解析器，不解析二维码时为null
+     */
+    private final MultipleBarcodeReader mQRCodeReader;
+
+    /**
+     * 其它格式的解析器，只解析二维码时为null
+     */
+    private final MultipleBarcodeReader mOtherReader;
+
+    /**
+     * 二维码解析参数
+     */
+    private final Map<DecodeHintType, ?> mHints;
+
+    /**
+     * 其它格式的解析参数，不包含二维码格式
+     */
+    private final Map<DecodeHintType, Object> mOtherHints;
+
+    /**
+     * 同一帧中已找到的结果，用于去重
+     */
+    private final Set<String> mFound = new HashSet<>();
+
+    @SuppressWarnings("unchecked")
+    MultiSymbolReader(Map<DecodeHintType, ?> hints) {
+        mHints = hints;
+        Collection<BarcodeFormat> formats = hints == null ? null
+                : (Collection<BarcodeFormat>) hints.get(DecodeHintType.POSSIBLE_FORMATS);
+        Set<BarcodeFormat> others;
+        if (formats == null || formats.isEmpty()) {
+            others = EnumSet.allOf(BarcodeFormat.class);
+        } else {
+            others = EnumSet.copyOf(formats);
+        }
+        boolean qrCode = others.remove(BarcodeFormat.QR_CODE);
+        mQRCodeReader = qrCode ? new QRCodeMultiReader() : null;
+        if (others.isEmpty()) {
+            mOtherHints = null;
+            mOtherReader = null;
+        } else {
+            mOtherHints = new EnumMap<>(DecodeHintType.class);
+            if (hints != null) {
+                mOtherHints.putAll(hints);
+            }
+            mOtherHints.put(DecodeHintType.POSSIBLE_FORMATS, others);
+            Reader reader = FormatReader.createReader(mOtherHints);
+            mOtherReader = new GenericMultipleBarcodeReader(reader);
+        }
+    }
+
+    /**
+     * 解析图像中的所有码
+     *
+     * @param bitmap 二值化图像
+     * @return 解析结果，至少包含一个
+     * @throws NotFoundException 未找到任何码
+     */
+    Result[] decodeMultiple(BinaryBitmap bitmap) throws NotFoundException {
+        List<Result> results = new ArrayList<>();
+        mFound.clear();
+        if (mQRCodeReader != null) {
+            addAll(results, decodeMultiple(mQRCodeReader, bitmap, mHints));
+        }
+        if (mOtherReader != null) {
+            addAll(results, decodeMultiple(mOtherReader, bitmap, mOtherHints));
+        }
+        if (results.isEmpty()) {
+            throw NotFoundException.getNotFoundInstance();
+        }
+        return results.toArray(new Result[0]);
+    }
+
+    private static Result[] decodeMultiple(MultipleBarcodeReader reader, BinaryBitmap bitmap,
+                                           Map<DecodeHintType, ?> hints) {
+        try {
+            return reader.decodeMultiple(bitmap, hints);
+        } catch (ReaderException re) {
+            return null;
+        }
+    }
+
+    private void addAll(List<Result> results, Result[] found) {
+        if (found == null) {
+            return;
+        }
+        for (Result result : found) {
+            if (mFound.add(result.getBarcodeFormat() + ":" + result.getText())) {
+                results.add(result);
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package io.hellobird.barcode.decode;
+
+import com.google.zxing.ResultPoint;
+import com.google.zxing.ResultPointCallback;
+
+/*******************************************************************
+ * PointCollector.java  2026-10-18
+ * <P>
+ * 解析过程中的特征点回调<br/>
+ * 记录一帧解析中找到的特征点的范围，用于判断是否找到了码但无法解析，以及预测下一帧中码的位置；
+ * 同时转发给外部的回调<br/>
+ * 非线程安全，每个解析线程各自持有一个实例<br/>
+ * </p>
+ *
+ * @author:zhoupeng
+ *
+ ******************************************************************/
+final class PointCollector implements ResultPointCallback {
+
+    /**
+     * 外部的特征点回调，可为null
+     */
+    private final ResultPointCallback mDelegate;
+
+    /**
+     * 找到的特征点数
+     */
+    private int mCount;
+
+    private float mMinX;
+    private float mMinY;
+    private float mMaxX;
+    private float mMaxY;
+
+    PointCollector(ResultPointCallback delegate) {
+        mDelegate = delegate;
+    }
+
+    @Override
+    public void foundPossibleResultPoint(ResultPoint point) {
+        add(point);
+        if (mDelegate != null) {
+            mDelegate.foundPossibleResultPoint(point);
+        }
+    }
+
+    /**
+     * 记录一个点，不转发给外部的回调
+     *
+     * @param point 点，可为null
+     */
+    void add(ResultPoint point) {
+        if (point != null) {
+            add(point.getX(), point.getY());
+        }
+    }
+
+    /**
+     * 记录一个点，不转发给外部的回调
+     *
+     * @param x 横坐标
+     * @param y 纵坐标
+     */
+    void add(float x, float y) {
+        if (mCount == 0) {
+            mMinX = mMaxX = x;
+            mMinY = mMaxY = y;
+        } else {
+            mMinX = Math.min(mMinX, x);
+            mMaxX = Math.max(mMaxX, x);
+            mMinY = Math.min(mMinY, y);
+            mMaxY = Math.max(mMaxY, y);
+        }
+        mCount++;
+    }
+
+    /**
+     * 清除记录，每帧解析前调用
+     */
+    void reset() {
+        mCount = 0;
+    }
+
+    /**
+     * @return 找到的特征点数
+     */
+    int getCount() {
+        return mCount;
+    }
+
+    float getMinX() {
+        return mMinX;
+    }
+
+    float getMinY() {
+        return mMinY;
+    }
+
+    float getMaxX() {
+        return mMaxX;
+    }
+
+    float getMaxY() {
+        return mMaxY;
+    }
+}
@@ -0,0 +1,31 @@
+package io.hellobird.barcode.decode;
+
+/*******************************************************************
+ * PreprocessStage.java  2026-10-18
+ * <P>
+ * 解析失败后重试时对亮度图像的预处理<br/>
+ * 直接处理亮度数据，不经过Bitmap与Canvas；用于褪色的热敏标签、曝光不均或噪点较多的图像<br/>
+ * </p>
+ *
+ * @author:zhoupeng
+ *
+ ******************************************************************/
+public enum PreprocessStage {
+
+    /**
+     * 对比度拉伸，将亮度两端各1%以外的部分截断后线性拉伸到0~255
+     */
+    CONTRAST_STRETCH,
+    /**
+     * 分块直方图均衡（限制对比度），适合光照不均的图像
+     */
+    EQUALIZE,
+    /**
+     * 伽马校正，偏亮的图像压暗中间调，偏暗的图像提亮中间调
+     */
+    GAMMA,
+    /**
+     * 3x3中值滤波去噪，保留边缘
+     */
+    DENOISE
+}
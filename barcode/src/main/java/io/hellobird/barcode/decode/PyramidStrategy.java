@@ -0,0 +1,114 @@
+package io.hellobird.barcode.decode;
+
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+import com.google.zxing.qrcode.detector.FinderPattern;
+
+/*******************************************************************
+ * PyramidStrategy.java  2026-10-18
+ * <P>
+ * 高分辨率预览下选择解析的缩小倍数<br/>
+ * 扫描框足够大时先解析缩小后的图像，失败后再解析原分辨率图像；
+ * 识别成功时根据定位点估计的模块大小决定下一帧的缩小倍数，码较小时直接解析原分辨率图像<br/>
+ * 非线程安全，每个解析线程各自持有一个实例<br/>
+ * </p>
+ *
+ * @author:zhoupeng
+ *
+ ******************************************************************/
+final class PyramidStrategy {
+
+    /**
+     * 可选的缩小倍数，从大到小
+     */
+    private static final int[] FACTORS = {4, 2};
+
+    /**
+     * 扫描框短边不小于该值时才缩小，单位px
+     */
+    private static final int MIN_SOURCE_SIZE = 600;
+
+    /**
+     * 缩小后短边不能小于该值，单位px
+     */
+    private static final int MIN_LEVEL_SIZE = 200;
+
+    /**
+     * 缩小后模块不小于该值时才能可靠地识别，单位px
+     */
+    private static final float MIN_MODULE_SIZE = 3f;
+
+    /**
+     * 尚未识别成功时的缩小倍数
+     */
+    private static final int DEFAULT_FACTOR = 2;
+
+    /**
+     * 下一帧优先尝试的缩小倍数，为1时不缩小
+     */
+    private int mFactor = DEFAULT_FACTOR;
+
+    /**
+     * @param width  扫描框宽度
+     * @param height 扫描框高度
+     * @return 本帧优先尝试的缩小倍数，为1时直接解析原分辨率图像
+     */
+    int getFactor(int width, int height) {
+        int size = Math.min(width, height);
+        if (size < MIN_SOURCE_SIZE) {
+            return 1;
+        }
+        int factor = mFactor;
+        while (factor > 1 && size / factor < MIN_LEVEL_SIZE) {
+            factor >>= 1;
+        }
+        return factor;
+    }
+
+    /**
+     * 识别成功后根据模块大小决定下一帧的缩小倍数，
+     * 缩小后解析失败、原分辨率识别成功时 factor 为1，之后的帧直接解析原分辨率图像，直到重新估计出模块大小
+     *
+     * @param result 识别结果
+     * @param factor 识别成功时的缩小倍数
+     */
+    void onDecoded(Result result, int factor) {
+        float moduleSize = estimateModuleSize(result);
+        if (moduleSize <= 0) {
+            // 无法估计模块大小（如一维码）时沿用识别成功的倍数
+            mFactor = factor;
+            return;
+        }
+        // 换算为原分辨率下的模块大小
+        moduleSize *= factor;
+        mFactor = 1;
+        for (int candidate : FACTORS) {
+            if (moduleSize / candidate >= MIN_MODULE_SIZE) {
+                mFactor = candidate;
+                break;
+            }
+        }
+    }
+
+    /**
+     * 根据二维码定位点估计模块大小
+     *
+     * @param result 识别结果
+     * @return 模块大小，单位为解析图像的像素，无法估计时返回0
+     */
+    private static float estimateModuleSize(Result result) {
+        ResultPoint[] points = result.getResultPoints();
+        if (points == null) {
+            return 0;
+        }
+        float total = 0;
+        int count = 0;
+        for (ResultPoint point : points) {
+            if (point instanceof FinderPattern) {
+                total += ((FinderPattern) point).getEstimatedModuleSize();
+                count++;
+            }
+        }
+        return count == 0 ? 0 : total / count;
+    }
+}
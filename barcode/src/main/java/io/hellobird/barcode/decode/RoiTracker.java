@@ -0,0 +1,110 @@
+package io.hellobird.barcode.decode;
+
+import android.graphics.Rect;
+
+/*******************************************************************
+ * RoiTracker.java  2026-10-18
+ * <P>
+ * 根据最近识别到的码的位置预测下一帧中码所在的区域<br/>
+ * 识别成功或找到了特征点但无法解析时，以特征点的范围向外扩展作为之后的解析区域，
+ * 只解析该区域可大幅减少二值化与解析的像素数；
+ * 在该区域内连续多帧未找到特征点时回到完整的扫描框<br/>
+ * 坐标均为预览帧中的坐标，与 {@link io.hellobird.barcode.camera.CameraManager#getFramingRectInPreview()} 一致<br/>
+ * 所有解析线程共享，方法均已同步<br/>
+ * </p>
+ *
+ * @author:zhoupeng
+ *
+ ******************************************************************/
+final class RoiTracker {
+
+    /**
+     * 连续多少帧在区域内未找到特征点后回到完整的扫描框
+     */
+    private static final int MAX_MISSES = 3;
+
+    /**
+     * 特征点范围向外扩展的比例，二维码的定位点在码的内部，需要留出码的边缘与移动的余量
+     */
+    private static final float MARGIN_RATIO = 0.5f;
+
+    /**
+     * 区域的最小边长，单位px，一维码的特征点可能只在一行上
+     */
+    private static final int MIN_SIZE = 160;
+
+    /**
+     * 当前的解析区域，未跟踪时为null
+     */
+    private Rect mRegion;
+
+    /**
+     * 在当前区域内连续未找到特征点的帧数
+     */
+    private int mMisses;
+
+    /**
+     * @return 当前的解析区域副本，未跟踪时为null
+     */
+    synchronized Rect getRegion() {
+        return mRegion == null ? null : new Rect(mRegion);
+    }
+
+    /**
+     * 更新解析区域
+     *
+     * @param points  本帧找到的特征点，坐标相对于解析区域
+     * @param region  本帧的解析区域
+     * @param bounds  区域不能超出的范围，一般为扫描框
+     * @param decoded 本帧是否识别成功
+     */
+    synchronized void onPointsFound(PointCollector points, Rect region, Rect bounds, boolean decoded) {
+        float width = points.getMaxX() - points.getMinX();
+        float height = points.getMaxY() - points.getMinY();
+        float margin = Math.max(width, height) * MARGIN_RATIO;
+        float centerX = region.left + (points.getMinX() + points.getMaxX()) / 2;
+        float centerY = region.top + (points.getMinY() + points.getMaxY()) / 2;
+        int halfWidth = Math.max(MIN_SIZE, Math.round(width + margin * 2)) / 2;
+        int halfHeight = Math.max(MIN_SIZE, Math.round(height + margin * 2)) / 2;
+        Rect next = new Rect(
+                Math.round(centerX) - halfWidth, Math.round(centerY) - halfHeight,
+                Math.round(centerX) + halfWidth, Math.round(centerY) + halfHeight);
+        if (!next.intersect(bounds)) {
+            reset();
+            return;
+        }
+        if (next.width() * next.height() >= bounds.width() * bounds.height() / 2) {
+            // 区域已接近整个扫描框，跟踪没有意义
+            reset();
+            return;
+        }
+        if (decoded || mRegion == null) {
+            mMisses = 0;
+        } else {
+            // 找到特征点却无法解析时也计为失败，避免一直跟踪误识别的特征点
+            mMisses++;
+        }
+        if (mMisses >= MAX_MISSES) {
+            reset();
+        } else {
+            mRegion = next;
+        }
+    }
+
+    /**
+     * 本帧未找到任何特征点
+     */
+    synchronized void onMissed() {
+        if (mRegion != null && ++mMisses >= MAX_MISSES) {
+            reset();
+        }
+    }
+
+    /**
+     * 回到完整的扫描框
+     */
+    synchronized void reset() {
+        mRegion = null;
+        mMisses = 0;
+    }
+}
@@ -0,0 +1,110 @@
+package io.hellobird.barcode.decode;
+
+import com.google.zxing.LuminanceSource;
+
+/*******************************************************************
+ * SharpnessGate.java  2026-10-18
+ * <P>
+ * 清晰度过滤<br/>
+ * 在扫描框内隔行隔列采样，以相邻像素亮度差的平方均值作为清晰度，
+ * 低于近期峰值一定比例的帧视为模糊帧，不再进行二值化与解析<br/>
+ * 每个解析线程各自持有一个实例<br/>
+ * </p>
+ *
+ * @author:zhoupeng
+ *
+ ******************************************************************/
+final class SharpnessGate {
+
+    /**
+     * 短边上的采样行（列）数
+     */
+    private static final int SAMPLE_LINES = 48;
+
+    /**
+     * 峰值每帧的衰减系数，使阈值能跟随场景变化下降
+     */
+    private static final float PEAK_DECAY = 0.95f;
+
+    /**
+     * 清晰度不低于峰值的该比例时视为清晰
+     */
+    private static final float ACCEPT_RATIO = 0.6f;
+
+    /**
+     * 连续跳过的最大帧数，超过后无论清晰度如何都解析一帧，避免阈值异常时永远无法识别
+     */
+    private static final int MAX_CONSECUTIVE_REJECTS = 5;
+
+    private byte[] mRow;
+    private byte[] mNextRow;
+
+    /**
+     * 近期清晰度峰值
+     */
+    private float mPeak;
+
+    /**
+     * 最近一帧的清晰度
+     */
+    private float mLastScore;
+
+    /**
+     * 连续跳过的帧数
+     */
+    private int mRejectCount;
+
+    /**
+     * 计算清晰度并判断是否需要解析该帧
+     *
+     * @param source 扫描框内的图像源
+     * @return true 足够清晰，需要解析
+     */
+    boolean isSharp(LuminanceSource source) {
+        float score = measure(source);
+        mLastScore = score;
+        mPeak = Math.max(score, mPeak * PEAK_DECAY);
+        if (score >= mPeak * ACCEPT_RATIO || mRejectCount >= MAX_CONSECUTIVE_REJECTS) {
+            mRejectCount = 0;
+            return true;
+        }
+        mRejectCount++;
+        return false;
+    }
+
+    /**
+     * @return 最近一帧的清晰度
+     */
+    float getLastScore() {
+        return mLastScore;
+    }
+
+    /**
+     * 计算图像清晰度
+     *
+     * @param source 图像源
+     * @return 相邻像素亮度差的平方均值
+     */
+    float measure(LuminanceSource source) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        if (width < 2 || height < 2) {
+            return 0;
+        }
+        int step = Math.max(1, Math.min(width, height) / SAMPLE_LINES);
+        long sum = 0;
+        int count = 0;
+        for (int y = 0; y < height - 1; y += step) {
+            mRow = source.getRow(y, mRow);
+            mNextRow = source.getRow(y + 1, mNextRow);
+            for (int x = 0; x < width - 1; x += step) {
+                int center = mRow[x] & 0xff;
+                int dx = (mRow[x + 1] & 0xff) - center;
+                int dy = (mNextRow[x] & 0xff) - center;
+                sum += dx * dx + dy * dy;
+                count++;
+            }
+        }
+        return count == 0 ? 0 : (float) sum / count;
+    }
+}
@@ -0,0 +1,131 @@
+package io.hellobird.barcode.decode;
+
+import android.os.SystemClock;
+
+/*******************************************************************
+ * SimilarityGate.java  2026-10-18
+ * <P>
+ * 相似帧过滤<br/>
+ * 将帧的亮度数据缩小为 16x16 的分块均值作为特征，
+ * 与上一次解析失败的帧特征几乎相同时跳过该帧，设备静止对着无法识别的码时不再重复解析<br/>
+ * 只在 {@link DecodeThreadPool} 所在线程中使用<br/>
+ * </p>
+ *
+ * @author:zhoupeng
+ *
+ ******************************************************************/
+final class SimilarityGate {
+
+    /**
+     * 每个方向上的分块数
+     */
+    private static final int GRID = 16;
+
+    /**
+     * 每个分块在每个方向上的采样点数
+     */
+    private static final int CELL_SAMPLES = 4;
+
+    /**
+     * 分块均值的平均差值小于该值时视为相同画面
+     */
+    private static final int MAX_MEAN_DIFF = 3;
+
+    /**
+     * 连续跳过的最长时间，单位ms，超过后无论是否相似都解析一帧
+     */
+    private static final long MAX_SKIP_TIME = 500L;
+
+    /**
+     * 当前帧特征
+     */
+    private final int[] mCurrent = new int[GRID * GRID];
+
+    /**
+     * 各解析线程正在解析的帧特征
+     */
+    private final int[][] mWorkerSignatures;
+
+    /**
+     * 上一次解析失败的帧特征
+     */
+    private final int[] mFailed = new int[GRID * GRID];
+    private boolean mHasFailed;
+
+    /**
+     * 上一次交给解析线程的时间
+     */
+    private long mLastDispatchTime;
+
+    SimilarityGate(int workerCount) {
+        mWorkerSignatures = new int[workerCount][GRID * GRID];
+    }
+
+    /**
+     * 计算帧特征，并判断是否与上一次解析失败的帧相同
+     *
+     * @param data   帧数据，开头为亮度数据
+     * @param width  帧宽度
+     * @param height 帧高度
+     * @return true 画面没有变化，可以跳过
+     */
+    boolean isSimilarToFailed(byte[] data, int width, int height) {
+        computeSignature(data, width, height, mCurrent);
+        if (!mHasFailed || SystemClock.uptimeMillis() - mLastDispatchTime > MAX_SKIP_TIME) {
+            return false;
+        }
+        int diff = 0;
+        for (int i = 0; i < mCurrent.length; i++) {
+            diff += Math.abs(mCurrent[i] - mFailed[i]);
+        }
+        return diff < MAX_MEAN_DIFF * mCurrent.length;
+    }
+
+    /**
+     * 当前帧交给了解析线程
+     *
+     * @param worker 解析线程编号
+     */
+    void onDispatched(int worker) {
+        System.arraycopy(mCurrent, 0, mWorkerSignatures[worker], 0, mCurrent.length);
+        mLastDispatchTime = SystemClock.uptimeMillis();
+    }
+
+    /**
+     * 解析线程解析失败，记录该帧特征
+     *
+     * @param worker 解析线程编号
+     */
+    void onFailed(int worker) {
+        System.arraycopy(mWorkerSignatures[worker], 0, mFailed, 0, mFailed.length);
+        mHasFailed = true;
+    }
+
+    /**
+     * 清除记录，新一轮解析开始时调用
+     */
+    void reset() {
+        mHasFailed = false;
+    }
+
+    private static void computeSignature(byte[] data, int width, int height, int[] signature) {
+        int cellWidth = width / GRID;
+        int cellHeight = height / GRID;
+        int stepX = Math.max(1, cellWidth / CELL_SAMPLES);
+        int stepY = Math.max(1, cellHeight / CELL_SAMPLES);
+        for (int gy = 0; gy < GRID; gy++) {
+            for (int gx = 0; gx < GRID; gx++) {
+                int sum = 0;
+                int count = 0;
+                for (int y = gy * cellHeight; y < (gy + 1) * cellHeight; y += stepY) {
+                    int offset = y * width;
+                    for (int x = gx * cellWidth; x < (gx + 1) * cellWidth; x += stepX) {
+                        sum += data[offset + x] & 0xff;
+                        count++;
+                    }
+                }
+                signature[gy * GRID + gx] = count == 0 ? 0 : sum / count;
+            }
+        }
+    }
+}
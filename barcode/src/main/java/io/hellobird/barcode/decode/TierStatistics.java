@@ -0,0 +1,87 @@
+package io.hellobird.barcode.decode;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*******************************************************************
+ * TierStatistics.java  2026-10-18
+ * <P>
+ * 各解析档位的解析次数、识别成功次数与耗时统计<br/>
+ * 同一次扫描中的所有解析线程共享<br/>
+ * </p>
+ *
+ * @author:zhoupeng
+ *
+ ******************************************************************/
+public final class TierStatistics {
+
+    /**
+     * 以 {@link DecodeTier#ordinal()} 为下标的解析次数
+     */
+    private final AtomicIntegerArray mAttempts = new AtomicIntegerArray(DecodeTier.values().length);
+
+    /**
+     * 以 {@link DecodeTier#ordinal()} 为下标的识别成功次数
+     */
+    private final AtomicIntegerArray mSuccesses = new AtomicIntegerArray(DecodeTier.values().length);
+
+    /**
+     * 以 {@link DecodeTier#ordinal()} 为下标的解析耗时，单位ns
+     */
+    private final AtomicLongArray mNanos = new AtomicLongArray(DecodeTier.values().length);
+
+    /**
+     * 记录一次解析
+     *
+     * @param tier    解析档位
+     * @param nanos   耗时，单位ns
+     * @param success 是否识别成功
+     */
+    void record(DecodeTier tier, long nanos, boolean success) {
+        int index = tier.ordinal();
+        mAttempts.incrementAndGet(index);
+        mNanos.addAndGet(index, nanos);
+        if (success) {
+            mSuccesses.incrementAndGet(index);
+        }
+    }
+
+    /**
+     * @param tier 解析档位
+     * @return 该档位的解析次数
+     */
+    public int getAttemptCount(DecodeTier tier) {
+        return mAttempts.get(tier.ordinal());
+    }
+
+    /**
+     * @param tier 解析档位
+     * @return 该档位的识别成功次数
+     */
+    public int getSuccessCount(DecodeTier tier) {
+        return mSuccesses.get(tier.ordinal());
+    }
+
+    /**
+     * @param tier 解析档位
+     * @return 该档位的解析总耗时，单位ms
+     */
+    public long getDecodeTimeMillis(DecodeTier tier) {
+        return TimeUnit.NANOSECONDS.toMillis(mNanos.get(tier.ordinal()));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (DecodeTier tier : DecodeTier.values()) {
+            if (builder.length() > 0) {
+                builder.append(", ");
+            }
+            builder.append(tier).append(": ")
+                    .append(getSuccessCount(tier)).append('/').append(getAttemptCount(tier))
+                    .append(" in ").append(getDecodeTimeMillis(tier)).append(" ms");
+        }
+        return builder.toString();
+    }
+}
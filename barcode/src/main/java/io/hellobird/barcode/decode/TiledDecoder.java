@@ -0,0 +1,368 @@
+package io.hellobird.barcode.decode;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Rect;
+import android.util.Log;
+
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*******************************************************************
+ * TiledDecoder.java  2026-10-18
+ * <P>
+ * 分块解析大图<br/>
+ * 整张采样读取会把高分辨率照片中的小码缩小到无法识别，
+ * 这里通过 {@link BitmapRegionDecoder} 以原始（或接近原始）分辨率逐块读取相互重叠的区域，
+ * 在多个线程中并行解析，离中心较近的块优先；可在首次识别成功后停止，也可收集所有结果<br/>
+ * 每个线程只持有一个块大小的Bitmap并重复使用，内存只与块大小有关，与照片尺寸无关<br/>
+ * </p>
+ *
+ * @author:zhoupeng
+ *
+ ******************************************************************/
+public final class TiledDecoder {
+
+    private static final String TAG = TiledDecoder.class.getSimpleName();
+
+    /**
+     * 空闲线程的存活时间，单位s
+     */
+    private static final int KEEP_ALIVE_SECONDS = 30;
+
+    /**
+     * 默认的块边长（采样后）
+     */
+    private static final int DEFAULT_TILE_SIZE = 1024;
+
+    /**
+     * 默认相邻块的重叠比例，应能完整包含一个码
+     */
+    private static final float DEFAULT_OVERLAP = 0.25f;
+
+    /**
+     * 线程安全的解析器
+     */
+    private final Decoder mDecoder;
+
+    private final ThreadPoolExecutor mExecutor;
+
+    private final int mThreadCount;
+
+    /**
+     * 块边长（采样后）
+     */
+    private volatile int mTileSize = DEFAULT_TILE_SIZE;
+
+    /**
+     * 相邻块的重叠比例
+     */
+    private volatile float mOverlap = DEFAULT_OVERLAP;
+
+    /**
+     * 读取时的采样倍数，1为原始分辨率
+     */
+    private volatile int mSampleSize = 1;
+
+    /**
+     * @param decoder     解析器，需线程安全，如 {@link Decoder#getShared}
+     * @param threadCount 并行解析的线程数，小于1时按cpu核数
+     */
+    public TiledDecoder(Decoder decoder, int threadCount) {
+        mDecoder = decoder;
+        mThreadCount = threadCount < 1 ? Runtime.getRuntime().availableProcessors() : threadCount;
+        mExecutor = new ThreadPoolExecutor(mThreadCount, mThreadCount,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    private final AtomicInteger mCount = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, TAG + "-" + mCount.incrementAndGet());
+                        thread.setPriority(Thread.NORM_PRIORITY - 1);
+                        return thread;
+                    }
+                });
+        mExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @param tileSize 块边长（采样后），决定每个线程占用的内存
+     * @param overlap  相邻块的重叠比例，0~0.5，应大于图中码所占的比例
+     */
+    public void setTileSize(int tileSize, float overlap) {
+        if (tileSize <= 0 || overlap < 0 || overlap > 0.5f) {
+            throw new IllegalArgumentException("tileSize: " + tileSize + ", overlap: " + overlap);
+        }
+        mTileSize = tileSize;
+        mOverlap = overlap;
+    }
+
+    /**
+     * @param sampleSize 读取时的采样倍数，1为原始分辨率，2的幂
+     */
+    public void setSampleSize(int sampleSize) {
+        mSampleSize = Math.max(1, sampleSize);
+    }
+
+    /**
+     * 分块解析图片，首次识别成功后停止，阻塞至解析结束
+     *
+     * @param filePath 图片路径
+     * @return 解析结果，坐标为原图坐标，未找到时为null
+     * @throws IOException 图片无法读取或格式不支持分块读取
+     */
+    public Result decodeFirst(String filePath) throws IOException {
+        List<Result> results = decode(filePath, false);
+        return results.isEmpty() ? null : results.get(0);
+    }
+
+    /**
+     * 分块解析图片，收集所有不重复的结果，阻塞至解析结束
+     *
+     * @param filePath 图片路径
+     * @return 解析结果，坐标为原图坐标
+     * @throws IOException 图片无法读取或格式不支持分块读取
+     */
+    public List<Result> decodeAll(String filePath) throws IOException {
+        return decode(filePath, true);
+    }
+
+    private List<Result> decode(String filePath, boolean all) throws IOException {
+        BitmapRegionDecoder regionDecoder = BitmapRegionDecoder.newInstance(filePath, false);
+        try {
+            return decode(regionDecoder, all);
+        } finally {
+            regionDecoder.recycle();
+        }
+    }
+
+    /**
+     * 分块解析，阻塞至解析结束
+     *
+     * @param regionDecoder 分块读取器，由调用方回收
+     * @param all           是否收集所有结果，为false时首次识别成功后停止
+     * @return 不重复的解析结果，坐标为原图坐标；被中断时为中断前的结果，并保留中断状态
+     */
+    public List<Result> decode(BitmapRegionDecoder regionDecoder, boolean all) {
+        Tiling tiling = new Tiling(regionDecoder, all);
+        int workers = Math.min(mThreadCount, tiling.mTiles.size());
+        tiling.mWorkers = new CountDownLatch(workers);
+        for (int i = 0; i < workers; i++) {
+            try {
+                mExecutor.execute(tiling);
+            } catch (RejectedExecutionException e) {
+                // 已调用shutdown，未能启动的解析线程不再等待
+                Log.w(TAG, "解析线程未能启动", e);
+                for (int j = i; j < workers; j++) {
+                    tiling.mWorkers.countDown();
+                }
+                break;
+            }
+        }
+        // 被中断时通知解析线程停止，但仍需等待其结束，之后调用方才能回收regionDecoder
+        boolean interrupted = false;
+        while (true) {
+            try {
+                tiling.mWorkers.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+                tiling.mStopped = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (tiling.mResults) {
+            return new ArrayList<>(tiling.mResults.values());
+        }
+    }
+
+    /**
+     * 不再接受新的解析，正在进行的解析继续
+     */
+    public void shutdown() {
+        mExecutor.shutdown();
+    }
+
+    /**
+     * 一次分块解析，同时作为各解析线程执行的任务
+     */
+    private final class Tiling implements Runnable {
+
+        private final BitmapRegionDecoder mRegionDecoder;
+
+        private final boolean mAll;
+
+        private final int mSampleSize = TiledDecoder.this.mSampleSize;
+
+        /**
+         * 划分块时的块边长（采样后），解析过程中调用 {@link #setTileSize} 不影响本次解析
+         */
+        private final int mTileSize = TiledDecoder.this.mTileSize;
+
+        /**
+         * 原图中的各块区域，离中心较近的在前
+         */
+        private final List<Rect> mTiles;
+
+        private final AtomicInteger mNextTile = new AtomicInteger();
+
+        /**
+         * 以格式与内容去重的结果，重叠区域中的码会被多个块识别到
+         */
+        private final Map<String, Result> mResults = new LinkedHashMap<>();
+
+        private CountDownLatch mWorkers;
+
+        private volatile boolean mStopped;
+
+        Tiling(BitmapRegionDecoder regionDecoder, boolean all) {
+            mRegionDecoder = regionDecoder;
+            mAll = all;
+            mTiles = buildTiles(regionDecoder.getWidth(), regionDecoder.getHeight(),
+                    mTileSize * mSampleSize, mOverlap);
+        }
+
+        @Override
+        public void run() {
+            try {
+                BitmapFactory.Options options = new BitmapFactory.Options();
+                options.inSampleSize = mSampleSize;
+                options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+                options.inMutable = true;
+                Bitmap reuse = null;
+                int index;
+                while (!mStopped && (index = mNextTile.getAndIncrement()) < mTiles.size()) {
+                    Rect tile = mTiles.get(index);
+                    if (reuse == null || reuse.isRecycled()) {
+                        reuse = Bitmap.createBitmap(mTileSize, mTileSize, Bitmap.Config.ARGB_8888);
+                    }
+                    options.inBitmap = reuse;
+                    try {
+                        // 读取结果写入复用的Bitmap左上角，超出区域的部分不会被解析
+                        Bitmap bitmap = mRegionDecoder.decodeRegion(tile, options);
+                        if (bitmap == null) {
+                            continue;
+                        }
+                        reuse = bitmap;
+                        int width = Math.min(bitmap.getWidth(), (tile.width() + mSampleSize - 1) / mSampleSize);
+                        int height = Math.min(bitmap.getHeight(), (tile.height() + mSampleSize - 1) / mSampleSize);
+                        LuminanceSource source = mDecoder.buildSourceFromBitmap(bitmap);
+                        if (width < bitmap.getWidth() || height < bitmap.getHeight()) {
+                            source = source.crop(0, 0, width, height);
+                        }
+                        Result result = mDecoder.decode(source);
+                        if (result != null) {
+                            addResult(translate(result, tile.left, tile.top, mSampleSize));
+                        }
+                    } catch (RuntimeException | OutOfMemoryError e) {
+                        // 单块读取或解析失败不影响其它块
+                        Log.w(TAG, "分块解析失败 " + tile, e);
+                    }
+                }
+                if (reuse != null) {
+                    reuse.recycle();
+                }
+            } finally {
+                mWorkers.countDown();
+            }
+        }
+
+        private void addResult(Result result) {
+            synchronized (mResults) {
+                String key = result.getBarcodeFormat() + ":" + result.getText();
+                if (!mResults.containsKey(key)) {
+                    mResults.put(key, result);
+                }
+            }
+            if (!mAll) {
+                mStopped = true;
+            }
+        }
+    }
+
+    /**
+     * 划分相互重叠的块，按离图片中心的距离排序，码通常位于照片中央
+     *
+     * @param imageWidth  原图宽度
+     * @param imageHeight 原图高度
+     * @param tileSize    原图中的块边长
+     * @param overlap     重叠比例
+     * @return 原图中的各块区域
+     */
+    static List<Rect> buildTiles(int imageWidth, int imageHeight, int tileSize, float overlap) {
+        int step = Math.max(1, (int) (tileSize * (1 - overlap)));
+        List<Rect> tiles = new ArrayList<>();
+        for (int top = 0; ; top += step) {
+            int bottom = Math.min(imageHeight, top + tileSize);
+            for (int left = 0; ; left += step) {
+                int right = Math.min(imageWidth, left + tileSize);
+                tiles.add(new Rect(left, top, right, bottom));
+                if (right >= imageWidth) {
+                    break;
+                }
+            }
+            if (bottom >= imageHeight) {
+                break;
+            }
+        }
+        final int centerX = imageWidth / 2;
+        final int centerY = imageHeight / 2;
+        Collections.sort(tiles, new Comparator<Rect>() {
+            @Override
+            public int compare(Rect a, Rect b) {
+                long da = distance(a, centerX, centerY);
+                long db = distance(b, centerX, centerY);
+                return da < db ? -1 : (da == db ? 0 : 1);
+            }
+        });
+        return tiles;
+    }
+
+    private static long distance(Rect rect, int x, int y) {
+        long dx = (rect.left + rect.right) / 2 - x;
+        long dy = (rect.top + rect.bottom) / 2 - y;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * 将块内坐标转换为原图坐标
+     */
+    private static Result translate(Result result, int left, int top, int sampleSize) {
+        ResultPoint[] points = result.getResultPoints();
+        ResultPoint[] translated = null;
+        if (points != null) {
+            translated = new ResultPoint[points.length];
+            for (int i = 0; i < points.length; i++) {
+                ResultPoint point = points[i];
+                if (point != null) {
+                    translated[i] = new ResultPoint(left + point.getX() * sampleSize,
+                            top + point.getY() * sampleSize);
+                }
+            }
+        }
+        Result copy = new Result(result.getText(), result.getRawBytes(), result.getNumBits(),
+                translated, result.getBarcodeFormat(), result.getTimestamp());
+        copy.putAllMetadata(result.getResultMetadata());
+        return copy;
+    }
+}
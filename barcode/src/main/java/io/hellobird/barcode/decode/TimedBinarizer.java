@@ -0,0 +1,55 @@
+package io.hellobird.barcode.decode;
+
+import com.google.zxing.Binarizer;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+
+/*******************************************************************
+ * TimedBinarizer.java  2026-10-18
+ * <P>
+ * 记录二值化耗时的二值化包装<br/>
+ * zxing在解析器内部才按需二值化，只能在二值化方法中计时，才能与解析器本身的耗时区分开<br/>
+ * </p>
+ *
+ * @author:zhoupeng
+ *
+ ******************************************************************/
+final class TimedBinarizer extends Binarizer {
+
+    private final Binarizer mDelegate;
+
+    private final BinarizerStrategy mOwner;
+
+    TimedBinarizer(Binarizer delegate, BinarizerStrategy owner) {
+        super(delegate.getLuminanceSource());
+        mDelegate = delegate;
+        mOwner = owner;
+    }
+
+    @Override
+    public BitArray getBlackRow(int y, BitArray row) throws NotFoundException {
+        long start = System.nanoTime();
+        try {
+            return mDelegate.getBlackRow(y, row);
+        } finally {
+            mOwner.addBinarizeTime(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public BitMatrix getBlackMatrix() throws NotFoundException {
+        long start = System.nanoTime();
+        try {
+            return mDelegate.getBlackMatrix();
+        } finally {
+            mOwner.addBinarizeTime(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Binarizer createBinarizer(LuminanceSource source) {
+        return new TimedBinarizer(mDelegate.createBinarizer(source), mOwner);
+    }
+}
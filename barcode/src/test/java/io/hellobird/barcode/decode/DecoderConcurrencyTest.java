@@ -0,0 +1,149 @@
+package io.hellobird.barcode.decode;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.Result;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.oned.Code128Writer;
+import com.google.zxing.qrcode.QRCodeWriter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 多线程共享同一个 {@link Decoder} 的压力测试
+ */
+public class DecoderConcurrencyTest {
+
+    private static final int THREAD_COUNT = 8;
+
+    private static final int ITERATIONS = 60;
+
+    /**
+     * 不同内容、不同格式的图片数量，各线程交错解析
+     */
+    private static final int IMAGE_COUNT = 12;
+
+    @Test
+    public void sharedDecoder_concurrentCallers_returnMatchingResults() throws Exception {
+        final Decoder decoder = Decoder.getShared(
+                Arrays.asList(BarcodeFormat.QR_CODE, BarcodeFormat.CODE_128), null);
+        // 共享实例的统计在同一进程的各测试间保留，只比较本次解析增加的次数
+        final int hitsBefore = decoder.getFormatStatistics().getTotalHitCount();
+        final List<String> texts = new ArrayList<>();
+        final List<LuminanceSource> sources = new ArrayList<>();
+        for (int i = 0; i < IMAGE_COUNT; i++) {
+            String text = "receipt-" + i;
+            texts.add(text);
+            // 交替两种格式，使各线程的解析器按格式统计排序时互相影响
+            sources.add(i % 2 == 0 ? qrCode(text) : code128(text));
+        }
+        // 空白图片，解析结果应为null
+        final LuminanceSource blank = toSource(new BitMatrix(200, 200), 1);
+
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int t = 0; t < THREAD_COUNT; t++) {
+            final int offset = t;
+            futures.add(executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    start.await();
+                    int decoded = 0;
+                    for (int i = 0; i < ITERATIONS; i++) {
+                        if (i % 10 == 9) {
+                            assertNull(decoder.decode(blank));
+                            continue;
+                        }
+                        int index = (offset + i) % IMAGE_COUNT;
+                        Result result = decoder.decode(sources.get(index));
+                        assertEquals(texts.get(index), result.getText());
+                        decoded++;
+                    }
+                    return decoded;
+                }
+            }));
+        }
+        start.countDown();
+        int total = 0;
+        for (Future<Integer> future : futures) {
+            // 断言失败时在此处抛出
+            total += future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(total, decoder.getFormatStatistics().getTotalHitCount() - hitsBefore);
+    }
+
+    @Test
+    public void getShared_sameFormatsAndCharset_returnsSameInstance() {
+        Decoder first = Decoder.getShared(Arrays.asList(BarcodeFormat.QR_CODE, BarcodeFormat.CODE_128), "UTF-8");
+        Decoder second = Decoder.getShared(EnumSet.of(BarcodeFormat.CODE_128, BarcodeFormat.QR_CODE), "UTF-8");
+        Decoder otherCharset = Decoder.getShared(EnumSet.of(BarcodeFormat.CODE_128, BarcodeFormat.QR_CODE), null);
+        Decoder otherFormats = Decoder.getShared(Collections.singletonList(BarcodeFormat.QR_CODE), "UTF-8");
+        assertSame(first, second);
+        assertNotSame(first, otherCharset);
+        assertNotSame(first, otherFormats);
+    }
+
+    @Test
+    public void getShared_setters_throw() {
+        Decoder shared = Decoder.getShared(Collections.singletonList(BarcodeFormat.QR_CODE), null);
+        try {
+            shared.setPreprocessStages(PreprocessStage.GAMMA);
+            fail("共享实例的配置不应可修改");
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+        // 自行创建的实例仍可修改
+        new Decoder(BarcodeFormat.QR_CODE).setPreprocessStages(PreprocessStage.GAMMA);
+    }
+
+    private static LuminanceSource qrCode(String text) throws WriterException {
+        return toSource(new QRCodeWriter().encode(text, BarcodeFormat.QR_CODE, 0, 0), 4);
+    }
+
+    private static LuminanceSource code128(String text) throws WriterException {
+        return toSource(new Code128Writer().encode(text, BarcodeFormat.CODE_128, 0, 60), 2);
+    }
+
+    /**
+     * 按倍数放大并加上留白，转换为亮度图像
+     */
+    private static LuminanceSource toSource(BitMatrix matrix, int scale) {
+        int margin = 16;
+        int width = matrix.getWidth() * scale + margin * 2;
+        int height = matrix.getHeight() * scale + margin * 2;
+        byte[] luminance = new byte[width * height];
+        Arrays.fill(luminance, (byte) 0xff);
+        for (int y = 0; y < matrix.getHeight() * scale; y++) {
+            for (int x = 0; x < matrix.getWidth() * scale; x++) {
+                if (matrix.get(x / scale, y / scale)) {
+                    luminance[(y + margin) * width + x + margin] = 0;
+                }
+            }
+        }
+        return new PlanarYUVLuminanceSource(luminance, width, height, 0, 0, width, height, false);
+    }
+}
@@ -0,0 +1,119 @@
+package io.hellobird.barcode.decode;
+
+import org.junit.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * {@link ExifOrientation} 的文件头解析测试
+ */
+public class ExifOrientationTest {
+
+    @Test
+    public void read_orientationTag_returnsOrientation() {
+        byte[] jpeg = jpeg(exif(8, ExifOrientation.ROTATE_90));
+        assertEquals(ExifOrientation.ROTATE_90, ExifOrientation.read(jpeg, 0, jpeg.length));
+    }
+
+    @Test
+    public void read_ifdOffsetOverflowsInt_returnsNormal() {
+        byte[] jpeg = jpeg(exif(0x80000000L, ExifOrientation.ROTATE_90));
+        assertEquals(ExifOrientation.NORMAL, ExifOrientation.read(jpeg, 0, jpeg.length));
+    }
+
+    @Test
+    public void read_ifdOffsetBeyondSegment_returnsNormal() {
+        byte[] jpeg = jpeg(exif(0xFFFFFFF0L, ExifOrientation.ROTATE_90));
+        assertEquals(ExifOrientation.NORMAL, ExifOrientation.read(jpeg, 0, jpeg.length));
+    }
+
+    @Test
+    public void read_largeSegmentsBeforeScan_staysWithinMarkLimit() throws IOException {
+        // 多个接近64KB的APP2段（如ICC配置），总长超过读取上限，且没有EXIF
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(0xFF);
+        out.write(0xD8);
+        byte[] segment = new byte[0xFFFF - 2];
+        for (int i = 0; i < 6; i++) {
+            out.write(0xFF);
+            out.write(0xE2);
+            out.write(0xFF);
+            out.write(0xFF);
+            out.write(segment, 0, segment.length);
+        }
+        out.write(0xFF);
+        out.write(0xDA);
+        InputStream in = new BufferedInputStream(new ByteArrayInputStream(out.toByteArray()));
+        in.mark(ExifOrientation.MAX_HEADER_BYTES);
+        assertEquals(ExifOrientation.NORMAL, ExifOrientation.read(in));
+        in.reset();
+        assertEquals(0xFF, in.read());
+    }
+
+    /**
+     * 构造只含APP1段的JPEG文件头
+     */
+    private static byte[] jpeg(byte[] app1) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(0xFF);
+        out.write(0xD8);
+        out.write(0xFF);
+        out.write(0xE1);
+        int length = app1.length + 2;
+        out.write(length >> 8);
+        out.write(length & 0xff);
+        out.write(app1, 0, app1.length);
+        out.write(0xFF);
+        out.write(0xDA);
+        return out.toByteArray();
+    }
+
+    /**
+     * 构造大端序的EXIF段，IFD0中只有Orientation一个标签
+     *
+     * @param ifdOffset   IFD0相对TIFF头的偏移
+     * @param orientation 方向
+     */
+    private static byte[] exif(long ifdOffset, int orientation) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write('E');
+        out.write('x');
+        out.write('i');
+        out.write('f');
+        out.write(0);
+        out.write(0);
+        out.write('M');
+        out.write('M');
+        out.write(0);
+        out.write(42);
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            out.write((int) (ifdOffset >> shift) & 0xff);
+        }
+        // IFD0：1个条目，Orientation，SHORT，数量1
+        out.write(0);
+        out.write(1);
+        out.write(0x01);
+        out.write(0x12);
+        out.write(0);
+        out.write(3);
+        out.write(0);
+        out.write(0);
+        out.write(0);
+        out.write(1);
+        out.write(0);
+        out.write(orientation);
+        out.write(0);
+        out.write(0);
+        // 下一个IFD的偏移
+        for (int i = 0; i < 4; i++) {
+            out.write(0);
+        }
+        return out.toByteArray();
+    }
+}